@@ -0,0 +1,51 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.util.CardUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маскирование номера: по полному номеру ({@link CardUtils#maskCardNumber}) и по сохранённым
+ * последним 4 цифрам ({@link Card#getMaskedCardNumber}), как при выдаче карт в API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CardMaskingBenchmark {
+
+    @Param({"4111111111111111", "6011000990139424123"})
+    private String cardNumber;
+
+    private Card card;
+
+    @Setup
+    public void setUp() {
+        card = new Card();
+        card.setLast4(CardUtils.lastFourDigits(cardNumber));
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return CardUtils.maskCardNumber(cardNumber);
+    }
+
+    @Benchmark
+    public String cardMaskedCardNumber() {
+        return card.getMaskedCardNumber();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.service.EncryptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EncryptionService#encryptAll} и {@link EncryptionService#decryptAll} на пакете номеров,
+ * последовательно и в общем ForkJoinPool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoBatchBenchmark {
+
+    private static final String BLIND_INDEX_KEY = "benchmark-blind-index-key-0123456789";
+
+    @Param({"10000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private EncryptionService encryptionService;
+    private List<String> cardNumbers;
+    private List<String> encrypted;
+
+    @Setup
+    public void setUp() {
+        encryptionService = new EncryptionService(new SimpleMeterRegistry(), BLIND_INDEX_KEY);
+        cardNumbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cardNumbers.add(String.format("4000%012d", i));
+        }
+        encrypted = encryptionService.encryptAll(cardNumbers);
+    }
+
+    @Benchmark
+    public List<String> encryptAll() {
+        return encryptionService.encryptAll(cardNumbers, parallel);
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return encryptionService.decryptAll(encrypted, parallel);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.service.EncryptionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EncryptionService#encrypt} и {@link EncryptionService#decrypt} на номерах реальной длины:
+ * 15 (Amex), 16 (Visa/Mastercard/МИР) и 19 цифр (Maestro, часть карт МИР).
+ * <p>
+ * {@code path}: {@code THREAD_LOCAL} — AES/GCM с экземпляром шифра на поток, {@code POOLED} — из общего
+ * пула (режим виртуальных потоков), {@code LEGACY_PER_CALL} — прежняя реализация сервиса: AES/ECB,
+ * новые ключ и {@link Cipher} на каждый вызов. {@link #newCipher} — что платил бы каждый запрос
+ * при экземпляре на поток, если поток живёт один запрос.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoBenchmark {
+
+    private static final SecretKeySpec KEY = new SecretKeySpec(new byte[16], "AES");
+    private static final String LEGACY_SECRET_KEY = "MySecretKey12345";
+    private static final String BLIND_INDEX_KEY = "benchmark-blind-index-key-0123456789";
+
+    public enum Path { THREAD_LOCAL, POOLED, LEGACY_PER_CALL }
+
+    @Param({"378282246310005", "4111111111111111", "6011000990139424123"})
+    private String cardNumber;
+
+    @Param({"THREAD_LOCAL", "POOLED", "LEGACY_PER_CALL"})
+    private Path path;
+
+    private EncryptionService encryptionService;
+    private String encrypted;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        // Таймеры bankcards.crypto пишутся, как в приложении, но в отдельный реестр
+        encryptionService = new EncryptionService(new SimpleMeterRegistry(), BLIND_INDEX_KEY, path == Path.POOLED);
+        encrypted = path == Path.LEGACY_PER_CALL ? legacyEncrypt(cardNumber) : encryptionService.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String encrypt() throws GeneralSecurityException {
+        return path == Path.LEGACY_PER_CALL ? legacyEncrypt(cardNumber) : encryptionService.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String decrypt() throws GeneralSecurityException {
+        return path == Path.LEGACY_PER_CALL ? legacyDecrypt(encrypted) : encryptionService.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public Cipher newCipher() throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, KEY, new GCMParameterSpec(128, new byte[12]));
+        return cipher;
+    }
+
+    // Прежняя реализация EncryptionService.encrypt, оставлена только для сравнения
+    private static String legacyEncrypt(String plainText) throws GeneralSecurityException {
+        SecretKeySpec secretKey = new SecretKeySpec(LEGACY_SECRET_KEY.getBytes(), "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes()));
+    }
+
+    private static String legacyDecrypt(String encryptedText) throws GeneralSecurityException {
+        SecretKeySpec secretKey = new SecretKeySpec(LEGACY_SECRET_KEY.getBytes(), "AES");
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedText)));
+    }
+}
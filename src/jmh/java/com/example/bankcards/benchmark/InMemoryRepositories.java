@@ -0,0 +1,141 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Репозитории на {@link ConcurrentHashMap} для бенчмарков без БД.
+ * <p>
+ * Реализованы только методы, которые вызывают измеряемые пути; остальные бросают
+ * {@link UnsupportedOperationException}, чтобы бенчмарк не измерял молча не то.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    /**
+     * Карты по id: блокирующее чтение, условные UPDATE и save — как у {@link CardRepository}.
+     * Блокировок нет: состояние карт используется одним потоком бенчмарка.
+     */
+    static CardRepository cards(Map<Long, Card> cards) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "findById":
+                case "findByIdForUpdate":
+                    return Optional.ofNullable(cards.get((Long) args[0]));
+                case "existsById":
+                    return cards.containsKey((Long) args[0]);
+                case "save":
+                    Card card = (Card) args[0];
+                    cards.put(card.getId(), card);
+                    return card;
+                case "debitIfSufficient": {
+                    Card from = cards.get((Long) args[0]);
+                    Double amount = (Double) args[1];
+                    if (from == null || from.getStatus() != CardStatus.ACTIVE || from.getBalance() < amount) {
+                        return 0;
+                    }
+                    from.setBalance(from.getBalance() - amount);
+                    return 1;
+                }
+                case "creditIfActive": {
+                    Card to = cards.get((Long) args[0]);
+                    if (to == null || to.getStatus() != CardStatus.ACTIVE) {
+                        return 0;
+                    }
+                    to.setBalance(to.getBalance() + (Double) args[1]);
+                    return 1;
+                }
+                default:
+                    return objectMethod(proxy, method.getName(), args, "CardRepository");
+            }
+        };
+        return (CardRepository) Proxy.newProxyInstance(CardRepository.class.getClassLoader(),
+                new Class<?>[]{CardRepository.class}, handler);
+    }
+
+    /**
+     * Журнал движений: только добавление строк в список.
+     */
+    static CardTransactionRepository transactions(List<CardTransaction> ledger) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "save":
+                    ledger.add((CardTransaction) args[0]);
+                    return args[0];
+                case "saveAll":
+                    List<CardTransaction> saved = new ArrayList<>();
+                    ((Iterable<?>) args[0]).forEach(entry -> saved.add((CardTransaction) entry));
+                    ledger.addAll(saved);
+                    return saved;
+                default:
+                    return objectMethod(proxy, method.getName(), args, "CardTransactionRepository");
+            }
+        };
+        return (CardTransactionRepository) Proxy.newProxyInstance(CardTransactionRepository.class.getClassLoader(),
+                new Class<?>[]{CardTransactionRepository.class}, handler);
+    }
+
+    /**
+     * Полосы баланса: у карт бенчмарков их нет, поэтому ни один метод не должен вызываться.
+     */
+    static CardBalanceStripeRepository noStripes() {
+        InvocationHandler handler = (proxy, method, args) ->
+                objectMethod(proxy, method.getName(), args, "CardBalanceStripeRepository");
+        return (CardBalanceStripeRepository) Proxy.newProxyInstance(CardBalanceStripeRepository.class.getClassLoader(),
+                new Class<?>[]{CardBalanceStripeRepository.class}, handler);
+    }
+
+    /**
+     * Отозванные токены: бенчмарки ничего не отзывают и список из БД не загружают.
+     */
+    static RevokedTokenRepository noRevokedTokens() {
+        InvocationHandler handler = (proxy, method, args) ->
+                objectMethod(proxy, method.getName(), args, "RevokedTokenRepository");
+        return (RevokedTokenRepository) Proxy.newProxyInstance(RevokedTokenRepository.class.getClassLoader(),
+                new Class<?>[]{RevokedTokenRepository.class}, handler);
+    }
+
+    /**
+     * Пользователи по имени: хватает для {@link com.example.bankcards.security.UserCache}.
+     */
+    static UserRepository users(Map<String, User> users) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("findByUsername")) {
+                return Optional.ofNullable(users.get((String) args[0]));
+            }
+            return objectMethod(proxy, method.getName(), args, "UserRepository");
+        };
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, handler);
+    }
+
+    private static Object objectMethod(Object proxy, String name, Object[] args, String type) {
+        switch (name) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemory" + type;
+            default:
+                throw new UnsupportedOperationException(type + "." + name + " is not supported in memory");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenRevocationList;
+import com.example.bankcards.security.UserCache;
+import com.example.bankcards.security.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск и проверка JWT через {@link JwtUtil}.
+ * <p>
+ * {@code validateToken} и {@code getAuthentication} измеряются в установившемся режиме, когда
+ * подпись уже проверена и claims лежат в {@link VerifiedTokenCache}; {@code validateTokenUncached}
+ * каждый раз проверяет подпись заново (очистка кэша из одной записи входит в замер).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-with-at-least-256-bits!";
+
+    private User user;
+    private VerifiedTokenCache tokenCache;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        user = new User("user1", "unused", Role.USER);
+        user.setId(1L);
+        tokenCache = new VerifiedTokenCache(10_000);
+        UserCache userCache = new UserCache(InMemoryRepositories.users(Map.of(user.getUsername(), user)),
+                10_000, Duration.ofMinutes(5));
+        // Пустой список отзывов: проверка каждого токена заканчивается на фильтре Блума
+        TokenRevocationList revocationList = new TokenRevocationList(InMemoryRepositories.noRevokedTokens(),
+                1_000_000, 0.01);
+        jwtUtil = new JwtUtil(SECRET, tokenCache, userCache, revocationList);
+        token = jwtUtil.generateToken(user);
+        jwtUtil.validateToken(token, user.getUsername());
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, user.getUsername());
+    }
+
+    @Benchmark
+    public Boolean validateTokenUncached() {
+        tokenCache.clear();
+        return jwtUtil.validateToken(token, user.getUsername());
+    }
+
+    @Benchmark
+    public Authentication getAuthentication() {
+        return jwtUtil.getAuthentication(token);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.security.UserCache;
+import com.example.bankcards.service.BalanceStripes;
+import com.example.bankcards.service.CardOperationMetrics;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.EncryptionService;
+import com.example.bankcards.service.TransferEngine;
+import com.example.bankcards.service.TransferMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CardService#transferBetweenCards} поверх репозитория в памяти.
+ * <p>
+ * Измеряется собственная логика сервиса и {@link TransferEngine} в обоих режимах вместе с метриками
+ * и записью в журнал (журнал в памяти очищается после каждой итерации);
+ * БД и транзакции Spring не участвуют (сервис создаётся без прокси). Переводы идут попеременно
+ * в обе стороны, поэтому балансы не исчерпываются за время замера.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransferBenchmark {
+
+    private static final Long FROM_CARD_ID = 1L;
+    private static final Long TO_CARD_ID = 2L;
+    private static final Double AMOUNT = 10.0;
+    private static final String BLIND_INDEX_KEY = "benchmark-blind-index-key-0123456789";
+
+    @Param({"PESSIMISTIC_LOCK", "CONDITIONAL_UPDATE"})
+    private TransferMode mode;
+
+    private CardService cardService;
+    private final List<CardTransaction> ledger = new ArrayList<>();
+    private boolean forward;
+
+    @Setup
+    public void setUp() {
+        User user = new User("user1", "unused", Role.USER);
+        user.setId(1L);
+
+        Map<Long, Card> cards = new HashMap<>();
+        cards.put(FROM_CARD_ID, card(FROM_CARD_ID, user));
+        cards.put(TO_CARD_ID, card(TO_CARD_ID, user));
+        CardRepository cardRepository = InMemoryRepositories.cards(cards);
+        CardTransactionRepository transactionRepository = InMemoryRepositories.transactions(ledger);
+
+        UserCache userCache = new UserCache(InMemoryRepositories.users(Map.of(user.getUsername(), user)),
+                10_000, Duration.ofMinutes(5));
+        BalanceStripes balanceStripes = new BalanceStripes(cardRepository, InMemoryRepositories.noStripes(), false);
+        cardService = new CardService(cardRepository, transactionRepository, userCache,
+                new EncryptionService(new SimpleMeterRegistry(), BLIND_INDEX_KEY),
+                new TransferEngine(cardRepository, transactionRepository, balanceStripes, mode),
+                balanceStripes, new CardOperationMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearLedger() {
+        ledger.clear();
+    }
+
+    @Benchmark
+    public void transferBetweenCards() {
+        forward = !forward;
+        if (forward) {
+            cardService.transferBetweenCards(FROM_CARD_ID, TO_CARD_ID, AMOUNT);
+        } else {
+            cardService.transferBetweenCards(TO_CARD_ID, FROM_CARD_ID, AMOUNT);
+        }
+    }
+
+    private static Card card(Long id, User user) {
+        Card card = new Card(null, "Benchmark User", LocalDate.now().plusYears(1), CardStatus.ACTIVE, 1000.0, user);
+        card.setId(id);
+        return card;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferEngine;
+import com.example.bankcards.service.TransferMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность режимов {@link TransferEngine} при конкурентных переводах на встроенной H2.
+ * <p>
+ * В отличие от {@link TransferBenchmark}, здесь работают настоящие блокировки строк и транзакции:
+ * приложение поднимается без веб-сервера в профиле {@code loadtest}, потоки переводят по 1.0
+ * между случайными парами из {@code cards} карт. Чем меньше карт, тем выше конкуренция за строки.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class TransferContentionBenchmark {
+
+    private static final Double AMOUNT = 1.0;
+
+    @Param({"PESSIMISTIC_LOCK", "CONDITIONAL_UPDATE"})
+    private TransferMode mode;
+
+    @Param({"20"})
+    private int cards;
+
+    private ConfigurableApplicationContext context;
+    private TransferEngine transferEngine;
+    private List<Long> cardIds;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankCardsApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("loadtest")
+                .run("--spring.datasource.url=jdbc:h2:mem:bankcards-transfer-" + mode
+                        + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000");
+        transferEngine = context.getBean(TransferEngine.class);
+
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        User user = context.getBean(UserRepository.class).findByUsername("user1").orElseThrow();
+        cardIds = new ArrayList<>();
+        for (int i = 0; i < cards; i++) {
+            Card card = new Card("bench-" + i, "Bench User", LocalDate.now().plusYears(1),
+                    CardStatus.ACTIVE, 1_000_000.0, user);
+            cardIds.add(cardRepository.save(card).getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(cardIds.size());
+        int to = (from + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+        if (mode == TransferMode.PESSIMISTIC_LOCK) {
+            transferEngine.transferWithLocks(cardIds.get(from), cardIds.get(to), AMOUNT);
+        } else {
+            transferEngine.transferWithConditionalUpdate(cardIds.get(from), cardIds.get(to), AMOUNT);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничивает число одновременно выданных соединений числом разрешений семафора
+ * (по умолчанию — размер пула Hikari).
+ * <p>
+ * Лишние потоки ждут в справедливой очереди семафора, а не внутри пула: при тысячах
+ * виртуальных потоков это дешевле, чем очередь Hikari, и не занимает потоки-носители.
+ * Разрешение возвращается при закрытии соединения; если разрешение не получено за
+ * {@code timeout}, бросается {@link SQLTransientConnectionException}, как при исчерпании пула.
+ */
+public class DatabaseConcurrencyGate extends DelegatingDataSource implements MeterBinder {
+
+    private final String pool;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long timeoutNanos;
+
+    public DatabaseConcurrencyGate(DataSource targetDataSource, int maxConcurrency, Duration timeout) {
+        this(targetDataSource, "default", maxConcurrency, timeout);
+    }
+
+    /**
+     * @param pool имя пула для тега pool в метриках (у Hikari — poolName)
+     */
+    public DatabaseConcurrencyGate(DataSource targetDataSource, String pool, int maxConcurrency, Duration timeout) {
+        super(targetDataSource);
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Database concurrency must be positive");
+        }
+        this.pool = pool;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return gated(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return gated(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bankcards.db.gate.active", this, gate -> gate.maxConcurrency - gate.getAvailablePermits())
+            .description("Connections held through the database concurrency gate")
+            .tag("pool", pool)
+            .register(registry);
+        Gauge.builder("bankcards.db.gate.waiting", this, DatabaseConcurrencyGate::getWaitingThreads)
+            .description("Threads waiting for a database concurrency permit")
+            .tag("pool", pool)
+            .register(registry);
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Database concurrency gate timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for database concurrency gate", e);
+        }
+    }
+
+    // Разрешение возвращается ровно один раз, даже если close() вызывают повторно
+    private Connection gated(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        permits.release();
+                    }
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
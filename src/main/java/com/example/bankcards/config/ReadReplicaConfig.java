@@ -0,0 +1,63 @@
+package com.example.bankcards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Чтение с реплики ({@code db.replica.enabled=true}).
+ * <p>
+ * Два пула Hikari: {@code primary} из {@code spring.datasource.*} и {@code replica} из
+ * {@code db.replica.datasource.*}. Основной источник данных приложения — {@link ReadWriteRoutingDataSource}
+ * за {@link LazyConnectionDataSourceProxy}; через него работают JPA, Liquibase и JdbcTemplate.
+ * Миграции выполняются только на основной БД — схема реплики приходит репликацией.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("db.replica.datasource")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${db.replica.lag-query:}") String lagQuery,
+                                               @Value("${db.replica.max-lag:5s}") Duration maxLag) {
+        return new ReplicaLagMonitor(replica, lagQuery.isBlank() ? ReplicaLagMonitor.POSTGRES_LAG_QUERY : lagQuery,
+            maxLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+            new ReadWriteRoutingDataSource(primary, replica, replicaLagMonitor, meterRegistry));
+    }
+}
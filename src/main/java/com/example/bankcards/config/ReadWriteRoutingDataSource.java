@@ -0,0 +1,59 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Выдаёт соединение реплики внутри {@code @Transactional(readOnly = true)}, если
+ * {@link ReplicaLagMonitor} считает её пригодной, и соединение основной БД во всех остальных случаях.
+ * <p>
+ * Признак readOnly выставляется уже после начала транзакции, поэтому источник должен быть обёрнут
+ * в {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: тогда настоящее
+ * соединение берётся при первом запросе, когда признак уже известен.
+ * <p>
+ * Выбор считается в {@code bankcards.db.routing.connections} с тегом target.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                      MeterRegistry registry) {
+        this.lagMonitor = lagMonitor;
+        this.primaryConnections = connections(registry, Target.PRIMARY);
+        this.replicaConnections = connections(registry, Target.REPLICA);
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && lagMonitor.isReplicaUsable()) {
+            replicaConnections.increment();
+            return Target.REPLICA;
+        }
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+
+    private static Counter connections(MeterRegistry registry, Target target) {
+        return Counter.builder("bankcards.db.routing.connections")
+            .description("Connections handed out by the read/write routing data source")
+            .tag("target", target.name().toLowerCase(Locale.ROOT))
+            .register(registry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Следит за отставанием реплики и решает, можно ли читать с неё.
+ * <p>
+ * Отставание в секундах периодически ({@code db.replica.lag-check-interval}) читается запросом
+ * {@code db.replica.lag-query} к самой реплике. Реплика пригодна, пока отставание не больше
+ * {@code db.replica.max-lag}; до первой проверки и при ошибке запроса (реплика недоступна)
+ * чтение идёт с основной БД.
+ * <p>
+ * Метрики: {@code bankcards.db.replica.lag} (секунды, NaN — неизвестно) и {@code bankcards.db.replica.usable}.
+ */
+public class ReplicaLagMonitor implements MeterBinder {
+
+    /**
+     * PostgreSQL: время с последней применённой транзакции, если реплика догоняет; 0, если всё
+     * полученное уже применено (на простаивающей основной БД время последней транзакции растёт само).
+     */
+    public static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+        + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+        + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replica;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag) {
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+    }
+
+    @Scheduled(fixedDelayString = "${db.replica.lag-check-interval:PT1S}")
+    public void check() {
+        try {
+            Double lag = replica.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag == null ? 0.0 : lag;
+            boolean usable = lagSeconds <= maxLagSeconds;
+            if (replicaUsable && !usable) {
+                log.warn("Replica lag {}s exceeds {}s, reading from primary", lagSeconds, maxLagSeconds);
+            }
+            replicaUsable = usable;
+        } catch (DataAccessException e) {
+            if (replicaUsable) {
+                log.warn("Replica lag check failed, reading from primary", e);
+            }
+            lagSeconds = Double.NaN;
+            replicaUsable = false;
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bankcards.db.replica.lag", this, ReplicaLagMonitor::getLagSeconds)
+            .description("Read replica lag measured by the lag query")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("bankcards.db.replica.usable", this, monitor -> monitor.isReplicaUsable() ? 1 : 0)
+            .description("Whether read-only transactions are routed to the replica")
+            .register(registry);
+    }
+}
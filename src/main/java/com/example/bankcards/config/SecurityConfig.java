@@ -1,5 +1,9 @@
 package com.example.bankcards.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -15,17 +19,35 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 import com.example.bankcards.security.JwtAuthenticationFilter;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.security.RateLimitProperties;
+import com.example.bankcards.security.RateLimiter;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
 @ComponentScan(basePackages = "com.example.bankcards.security")
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
     private final JwtUtil jwtUtil;
+    private final MeterRegistry meterRegistry;
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+    private final ObjectMapper objectMapper;
+    // Порт actuator, если он отделён от порта приложения; иначе -1
+    private final int managementPort;
 
-    public SecurityConfig(JwtUtil jwtUtil) {
+    public SecurityConfig(JwtUtil jwtUtil, MeterRegistry meterRegistry, RateLimiter rateLimiter,
+                          RateLimitProperties rateLimitProperties, ObjectMapper objectMapper,
+                          @Value("${server.port:8080}") int serverPort,
+                          @Value("${management.server.port:-1}") int managementPort) {
         this.jwtUtil = jwtUtil;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
+        this.rateLimitProperties = rateLimitProperties;
+        this.objectMapper = objectMapper;
+        this.managementPort = managementPort > 0 && managementPort != serverPort ? managementPort : -1;
     }
 
     @Bean
@@ -35,7 +57,7 @@ public class SecurityConfig {
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        JwtAuthenticationFilter jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtil);
+        JwtAuthenticationFilter jwtAuthenticationFilter = new JwtAuthenticationFilter(jwtUtil, meterRegistry);
 
         http
             .csrf(csrf -> csrf.disable())
@@ -43,17 +65,28 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/swagger-ui/**").permitAll()
                 .requestMatchers("/v3/api-docs/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // Метрики без аутентификации — только на отдельном management-порту, закрытом сетью
+                // для всех, кроме Prometheus; на порту приложения — только ADMIN
+                .requestMatchers(request -> request.getLocalPort() == managementPort
+                    && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/user/**").hasRole("USER")
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        if (rateLimitProperties.isEnabled()) {
+            // Лимиты проверяются до разбора токена и до контроллеров
+            http.addFilterBefore(new RateLimitFilter(rateLimiter, jwtUtil, objectMapper), JwtAuthenticationFilter.class);
+        }
 
         return http.build();
     }
 
+    // Хэши с другим cost пересчитываются при следующем входе (PasswordVerifier)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
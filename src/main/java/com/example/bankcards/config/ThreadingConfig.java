@@ -0,0 +1,73 @@
+package com.example.bankcards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Потоки обработки запросов.
+ * <p>
+ * При {@code app.threads.virtual.enabled=true} Tomcat запускает каждый запрос в новом виртуальном
+ * потоке вместо пула платформенных потоков (Java 21+, см. {@link VirtualThreads}). Свойство своё,
+ * а не {@code spring.threads.virtual.enabled}: Spring Boot 3.0 виртуальные потоки не поддерживает.
+ * Поскольку почти каждый запрос упирается в JDBC, вместе с этим режимом включается
+ * {@link DatabaseConcurrencyGate} размером с пул Hikari ({@code db.gate.*}).
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final String VIRTUAL_THREADS = "app.threads.virtual.enabled";
+
+    @Bean
+    @ConditionalOnProperty(name = VIRTUAL_THREADS, havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-vt-");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * Оборачивает пул Hikari в {@link DatabaseConcurrencyGate}. Без явных настроек число разрешений
+     * равно {@code maximumPoolSize}, а тайм-аут — {@code connectionTimeout} пула.
+     */
+    @Bean
+    @ConditionalOnExpression("${db.gate.enabled:${" + VIRTUAL_THREADS + ":false}}")
+    public static BeanPostProcessor databaseConcurrencyGatePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)) {
+                    return bean;
+                }
+                int maxConcurrency = environment.getProperty("db.gate.max-concurrency", Integer.class,
+                        hikari.getMaximumPoolSize());
+                Duration timeout = environment.getProperty("db.gate.timeout", Duration.class,
+                        Duration.ofMillis(hikari.getConnectionTimeout()));
+                // Имя пула без spring.datasource.name Hikari назначает только при старте
+                String pool = Objects.requireNonNullElse(hikari.getPoolName(), "default");
+                return new DatabaseConcurrencyGate(hikari, pool, maxConcurrency, timeout);
+            }
+        };
+    }
+
+    // Все пулы: при чтении с реплики их два (ReadReplicaConfig)
+    @Bean
+    public MeterBinder databaseConcurrencyGateMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.forEach(dataSource -> {
+            if (dataSource instanceof DatabaseConcurrencyGate gate) {
+                gate.bindTo(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bankcards.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Виртуальные потоки (Java 21+) при сборке под Java 17.
+ * <p>
+ * API вызывается через reflection: на Java 21 и новее приложение получает настоящие виртуальные
+ * потоки, на более старых JVM {@link #newThreadPerTaskExecutor} сообщает, что режим недоступен.
+ */
+public final class VirtualThreads {
+
+    private static final ThreadFactoryProvider PROVIDER = ThreadFactoryProvider.detect();
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return PROVIDER != null;
+    }
+
+    /**
+     * Исполнитель, запускающий каждую задачу в новом виртуальном потоке с именем {@code prefix + N}.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        if (PROVIDER == null) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer, running on Java "
+                    + Runtime.version().feature());
+        }
+        return PROVIDER.newExecutor(prefix);
+    }
+
+    private static final class ThreadFactoryProvider {
+
+        private final Method ofVirtual;
+        private final Method name;
+        private final Method factory;
+        private final Method newThreadPerTaskExecutor;
+
+        private ThreadFactoryProvider() throws ReflectiveOperationException {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            this.ofVirtual = Thread.class.getMethod("ofVirtual");
+            this.name = builder.getMethod("name", String.class, long.class);
+            this.factory = builder.getMethod("factory");
+            this.newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        }
+
+        static ThreadFactoryProvider detect() {
+            try {
+                return new ThreadFactoryProvider();
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        ExecutorService newExecutor(String prefix) {
+            try {
+                Object builder = name.invoke(ofVirtual.invoke(null), prefix, 0L);
+                ThreadFactory threadFactory = (ThreadFactory) factory.invoke(builder);
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create virtual thread executor", e);
+            }
+        }
+    }
+}
@@ -4,12 +4,17 @@ import com.example.bankcards.dto.LoginRequest;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.PasswordVerifier;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -17,27 +22,56 @@ public class AuthController {
 
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
 
-    public AuthController(JwtUtil jwtUtil, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AuthController(JwtUtil jwtUtil, UserRepository userRepository, PasswordVerifier passwordVerifier) {
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordVerifier = passwordVerifier;
     }
 
+    // Пароль проверяется в пуле PasswordVerifier, поток запроса на это время освобождается;
+    // при заполненной очереди проверок — сразу 503
     @PostMapping("/login")
-    public ResponseEntity<String> login(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<String>> login(@RequestBody LoginRequest loginRequest) {
+        // Хэш пароля нужен только здесь и в UserCache не хранится, поэтому логин читает пользователя из БД
         Optional<User> userOpt = userRepository.findByUsername(loginRequest.getUsername());
+        if (userOpt.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
 
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            if (passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
-                String token = jwtUtil.generateToken(user.getUsername());
-                return ResponseEntity.ok(token);
-            }
+        User user = userOpt.get();
+        CompletableFuture<Boolean> matches;
+        try {
+            matches = passwordVerifier.verify(user, loginRequest.getPassword());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build());
         }
+        return matches.thenApply(valid -> valid
+            // Роль и id в токене: последующим запросам не нужно читать пользователя
+            ? ResponseEntity.ok(jwtUtil.generateToken(user))
+            : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    }
 
-        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    // Отзыв предъявленного токена: дальше он не принимается ни одним узлом, хотя ещё не истёк
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Claims claims;
+        try {
+            claims = jwtUtil.extractAllClaims(authorization.substring(7));
+        } catch (JwtException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (claims.getSubject() == null || !jwtUtil.validateClaims(claims, claims.getSubject())
+                || !jwtUtil.revoke(claims)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/validate")
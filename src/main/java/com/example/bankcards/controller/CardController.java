@@ -1,14 +1,35 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BulkIssueReport;
+import com.example.bankcards.dto.CardLookupRequest;
+import com.example.bankcards.dto.CardTransactionView;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.dto.ETagged;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.service.CardBulkService;
+import com.example.bankcards.service.CardExportFormat;
+import com.example.bankcards.service.CardExportService;
 import com.example.bankcards.service.CardService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,47 +37,126 @@ import java.util.Optional;
 @RequestMapping("/api/cards")
 public class CardController {
 
+    // Клиент может хранить ответ, но перед использованием обязан сверить ETag;
+    // заменяет no-store, который Spring Security ставит по умолчанию
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final CardService cardService;
+    private final CardExportService cardExportService;
+    private final CardBulkService cardBulkService;
 
     @Autowired
-    public CardController(CardService cardService) {
+    public CardController(CardService cardService, CardExportService cardExportService,
+                          CardBulkService cardBulkService) {
         this.cardService = cardService;
+        this.cardExportService = cardExportService;
+        this.cardBulkService = cardBulkService;
     }
 
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public List<Card> getAllCards() {
+    public List<CardView> getAllCards() {
         return cardService.getAllCards();
     }
 
+    // Потоковая выгрузка всех карт (?format=ndjson|csv): строки уходят клиенту по мере чтения из БД
+    @GetMapping(params = "format")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportCards(@RequestParam String format, HttpServletResponse response) throws IOException {
+        exportCards(CardExportFormat.fromParam(format), response);
+    }
+
+    // То же для Accept: application/x-ndjson
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportCardsAsNdjson(HttpServletResponse response) throws IOException {
+        exportCards(CardExportFormat.NDJSON, response);
+    }
+
+    private void exportCards(CardExportFormat format, HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (format == CardExportFormat.CSV) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"cards.csv\"");
+        }
+        cardExportService.export(format, response.getOutputStream());
+    }
+
+    // Условный GET: при If-None-Match сначала сверяется только ETag (версия и баланс карты),
+    // и при совпадении отдаётся 304 без выборки и сериализации карты
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @cardService.isCardOwner(#id, authentication.name)")
-    public ResponseEntity<Card> getCardById(@PathVariable Long id) {
-        Optional<Card> card = cardService.getCardById(id);
-        return card.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<CardView> getCardById(@PathVariable Long id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = cardService.getCardETag(id);
+            if (etag.isPresent() && matches(ifNoneMatch, etag.get())) {
+                return notModified(etag.get());
+            }
+        }
+        Optional<CardView> card = cardService.getCardById(id);
+        return card.map(view -> ResponseEntity.ok().cacheControl(REVALIDATE).eTag(view.getETag()).body(view))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Выписка по карте от новых к старым: период [from, to), keyset-пагинация по курсору after
+    @GetMapping("/{id}/transactions")
+    @PreAuthorize("hasRole('ADMIN') or @cardService.isCardOwner(#id, authentication.name)")
+    public CursorPage<CardTransactionView> getTransactions(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int size) {
+        return cardService.getTransactions(id, from, to, after, size);
+    }
+
+    // Поиск карты по полному номеру (номер передаётся в теле, чтобы не попадать в логи URL)
+    @PostMapping("/lookup")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CardView> findByCardNumber(@RequestBody CardLookupRequest request) {
+        Optional<Card> card = cardService.findByCardNumber(request.getCardNumber());
+        return card.map(CardView::from).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     // Только ADMIN может создавать карты
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public Card createCard(@RequestBody Card card) {
-        return cardService.createCard(card);
+    public CardView createCard(@RequestBody Card card) {
+        return CardView.from(cardService.createCard(card));
+    }
+
+    // Массовый выпуск карт из CSV или NDJSON (по Content-Type): тело читается потоком,
+    // в ответе — сколько карт создано и ошибки по номерам строк
+    @PostMapping(value = "/bulk", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public BulkIssueReport bulkIssue(HttpServletRequest request) throws IOException {
+        return cardBulkService.issue(CardExportFormat.fromContentType(request.getContentType()),
+            request.getInputStream());
     }
 
     // Только ADMIN может обновлять карты
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Card> updateCard(@PathVariable Long id, @RequestBody Card updatedCard) {
+    public ResponseEntity<CardView> updateCard(@PathVariable Long id, @RequestBody Card updatedCard) {
         try {
             Card card = cardService.updateCard(id, updatedCard);
-            return ResponseEntity.ok(card);
+            return ResponseEntity.ok(CardView.from(card));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
 
+    // Режим горячей карты: зачисления распределяются по count полосам баланса, 0 — выключить
+    @PutMapping("/{id}/stripes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CardView setBalanceStripes(@PathVariable Long id, @RequestParam int count) {
+        return cardService.setBalanceStripes(id, count);
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteCard(@PathVariable Long id) {
@@ -76,6 +176,14 @@ public class CardController {
         }
     }
 
+    // Пакет переводов: владение проверяется в сервисе одним запросом на весь пакет
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<List<TransferResult>> transferBatch(@RequestBody List<TransferRequest> transfers,
+                                                             Principal principal) {
+        return ResponseEntity.ok(cardService.transferBatch(transfers, principal.getName()));
+    }
+
     // USER может блокировать только свои карты
     @PostMapping("/block")
     @PreAuthorize("hasRole('USER') and @cardService.isCardOwner(#cardId, authentication.name)")
@@ -89,24 +197,60 @@ public class CardController {
     }
 
 
+    // Без after — прежняя постраничная выдача (page/size);
+    // с after (пустой — первая страница) — keyset-пагинация с nextCursor в ответе
     @GetMapping("/filter")
-    public ResponseEntity<List<Card>> filterCards(
+    public ResponseEntity<?> filterCards(
             @RequestParam(required = false) String owner,
             @RequestParam(required = false) CardStatus status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
             Principal principal) {
-        List<Card> filteredCards = cardService.filterCards(owner, status, page, size, principal.getName());
+        if (after != null) {
+            return ResponseEntity.ok(cardService.filterCardsAfter(owner, status, after, size, principal.getName()));
+        }
+        List<CardView> filteredCards = cardService.filterCards(owner, status, page, size, principal.getName());
         return ResponseEntity.ok(filteredCards);
     }
 
-    // USER может видеть только свои карты
+    // USER может видеть только свои карты. ETag — сводка по всем картам пользователя, считается
+    // в одной транзакции со страницей; если она совпала с If-None-Match, страница не выбирается
     @GetMapping("/my")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<Card>> getMyCards(Principal principal,
-                                                 @RequestParam(defaultValue = "0") int page,
-                                                 @RequestParam(defaultValue = "10") int size) {
-        List<Card> myCards = cardService.getUserCards(principal.getName(), page, size);
-        return ResponseEntity.ok(myCards);
+    public ResponseEntity<?> getMyCards(Principal principal,
+                                        @RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "10") int size,
+                                        @RequestParam(required = false) String after,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                        String ifNoneMatch) {
+        ETagged<Object> myCards = cardService.getUserCards(principal.getName(), page, size, after,
+                etag -> matches(ifNoneMatch, etag));
+        if (!myCards.isModified()) {
+            return notModified(myCards.getETag());
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(myCards.getETag()).body(myCards.getBody());
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).eTag(etag).build();
+    }
+
+    // Слабое сравнение If-None-Match с ETag (RFC 9110, 13.1.2): префикс W/ не учитывается
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String quoted = '"' + etag + '"';
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(quoted)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
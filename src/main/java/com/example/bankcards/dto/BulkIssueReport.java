@@ -0,0 +1,68 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+/**
+ * Итог массового выпуска карт: сколько строк прочитано и создано, и ошибки по номерам строк.
+ * <p>
+ * Список ошибок ограничен; {@code errorsTruncated} говорит, что ошибок было больше, чем в списке,
+ * а точное их число — {@code failed}.
+ */
+public class BulkIssueReport {
+
+    private final long total;
+    private final long created;
+    private final long failed;
+    private final List<LineError> errors;
+    private final boolean errorsTruncated;
+
+    public BulkIssueReport(long total, long created, long failed, List<LineError> errors, boolean errorsTruncated) {
+        this.total = total;
+        this.created = created;
+        this.failed = failed;
+        this.errors = errors;
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    /**
+     * Строка входных данных, которая не стала картой: номер строки в теле запроса (с 1) и причина.
+     */
+    public static class LineError {
+
+        private final long line;
+        private final String message;
+
+        public LineError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.dto;
+
+public class CardLookupRequest {
+
+    private String cardNumber;
+
+    public String getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(String cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+}
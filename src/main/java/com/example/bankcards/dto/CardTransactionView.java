@@ -0,0 +1,53 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка выписки по карте. Заполняется конструкторным выражением JPQL
+ * (см. {@code CardTransactionRepository}).
+ */
+public class CardTransactionView {
+
+    private final Long id;
+    private final Long cardId;
+    private final Long counterpartyCardId;
+    private final TransactionType type;
+    private final Double amount;
+    private final LocalDateTime createdAt;
+
+    public CardTransactionView(Long id, Long cardId, Long counterpartyCardId, TransactionType type, Double amount,
+                               LocalDateTime createdAt) {
+        this.id = id;
+        this.cardId = cardId;
+        this.counterpartyCardId = counterpartyCardId;
+        this.type = type;
+        this.amount = amount;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public Long getCounterpartyCardId() {
+        return counterpartyCardId;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.CardUtils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDate;
+
+/**
+ * Карта в ответах API: плоская проекция без зашифрованного номера и без связанного пользователя.
+ * <p>
+ * Списки заполняются конструкторным выражением JPQL прямо из строк выборки
+ * (см. {@code CardRepository}), поэтому ни Card, ни User при этом не загружаются.
+ * <p>
+ * Версия строки в тело ответа не попадает — из неё и баланса строится ETag ({@link #eTag}).
+ */
+public class CardView {
+
+    private final Long id;
+    private final String owner;
+    private final String maskedCardNumber;
+    private final LocalDate expirationDate;
+    private final CardStatus status;
+    private final Double balance;
+    private final Long userId;
+    private final long version;
+
+    public CardView(Long id, String owner, String last4, LocalDate expirationDate, CardStatus status,
+                    Double balance, Long userId, long version) {
+        this.id = id;
+        this.owner = owner;
+        this.maskedCardNumber = CardUtils.maskLast4(last4);
+        this.expirationDate = expirationDate;
+        this.status = status;
+        this.balance = balance;
+        this.userId = userId;
+        this.version = version;
+    }
+
+    // Для одиночной карты, уже загруженной как сущность; getId() ленивого прокси не обращается к БД
+    public static CardView from(Card card) {
+        return new CardView(card.getId(), card.getOwner(), card.getLast4(), card.getExpirationDate(),
+            card.getStatus(), card.getBalance(), card.getUser() != null ? card.getUser().getId() : null,
+            card.getVersion());
+    }
+
+    /**
+     * ETag карты без кавычек. Баланс входит в него потому, что зачисление в полосу горячей
+     * карты не меняет версию её строки.
+     */
+    public static String eTag(Long id, long version, Double balance) {
+        return id + "-" + version + "-" + Long.toHexString(Double.doubleToLongBits(balance));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getMaskedCardNumber() {
+        return maskedCardNumber;
+    }
+
+    public LocalDate getExpirationDate() {
+        return expirationDate;
+    }
+
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    public Double getBalance() {
+        return balance;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public String getETag() {
+        return eTag(id, version, balance);
+    }
+}
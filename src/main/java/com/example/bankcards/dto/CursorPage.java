@@ -0,0 +1,26 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+/**
+ * Страница keyset-пагинации: элементы и курсор для запроса следующей страницы
+ * (null, если страница последняя).
+ */
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bankcards.dto;
+
+/**
+ * Ответ вместе с его ETag. Если ETag совпал с условием запроса (If-None-Match),
+ * данные не выбираются: {@link #isModified()} — false, тело — null.
+ */
+public class ETagged<T> {
+
+    private final String eTag;
+    private final T body;
+    private final boolean modified;
+
+    private ETagged(String eTag, T body, boolean modified) {
+        this.eTag = eTag;
+        this.body = body;
+        this.modified = modified;
+    }
+
+    public static <T> ETagged<T> of(String eTag, T body) {
+        return new ETagged<>(eTag, body, true);
+    }
+
+    public static <T> ETagged<T> notModified(String eTag) {
+        return new ETagged<>(eTag, null, false);
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public T getBody() {
+        return body;
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bankcards.dto;
+
+public class TransferRequest {
+
+    private Long fromCardId;
+    private Long toCardId;
+    private Double amount;
+
+    public TransferRequest() {}
+
+    public TransferRequest(Long fromCardId, Long toCardId, Double amount) {
+        this.fromCardId = fromCardId;
+        this.toCardId = toCardId;
+        this.amount = amount;
+    }
+
+    public Long getFromCardId() {
+        return fromCardId;
+    }
+
+    public void setFromCardId(Long fromCardId) {
+        this.fromCardId = fromCardId;
+    }
+
+    public Long getToCardId() {
+        return toCardId;
+    }
+
+    public void setToCardId(Long toCardId) {
+        this.toCardId = toCardId;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.dto;
+
+/**
+ * Результат одного перевода из пакета: порядковый номер в запросе и исход.
+ */
+public class TransferResult {
+
+    private final int index;
+    private final boolean success;
+    private final String message;
+
+    private TransferResult(int index, boolean success, String message) {
+        this.index = index;
+        this.success = success;
+        this.message = message;
+    }
+
+    public static TransferResult success(int index) {
+        return new TransferResult(index, true, "Transfer successful");
+    }
+
+    public static TransferResult failure(int index, String message) {
+        return new TransferResult(index, false, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.util.CardUtils;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.time.LocalDate;
 
@@ -7,11 +10,21 @@ import java.time.LocalDate;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_seq")
+    @SequenceGenerator(name = "card_seq", sequenceName = "card_seq", allocationSize = 50)
+    private Long id; // Пулы из последовательности: вставки карт идут JDBC-пакетами
 
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(nullable = false, unique = true)
-    private String cardNumber; // Хранится в зашифрованном виде
+    private String cardNumber; // Хранится в зашифрованном виде, в ответы не попадает
+
+    @JsonIgnore
+    @Column(unique = true, length = 64)
+    private String cardNumberHash; // Blind index (HMAC номера) для поиска без расшифровки
+
+    @JsonIgnore
+    @Column(name = "last4", length = 4)
+    private String last4; // Последние 4 цифры в открытом виде — маскирование без расшифровки
 
     @Column(nullable = false)
     private String owner;
@@ -23,9 +36,18 @@ public class Card {
     @Enumerated(EnumType.STRING)
     private CardStatus status;
 
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "NUMERIC(15, 2)")
     private Double balance;
 
+    @JsonIgnore
+    @Column(name = "balance_stripes", nullable = false)
+    private int balanceStripes; // > 0 — «горячая» карта: зачисления идут в строки card_balance_stripe
+
+    @JsonIgnore
+    @Version
+    @Column(nullable = false)
+    private long version; // Растёт при каждом изменении строки; основа ETag карты
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user; // Связь с пользователем
@@ -60,6 +82,22 @@ public class Card {
         this.cardNumber = cardNumber;
     }
 
+    public String getCardNumberHash() {
+        return cardNumberHash;
+    }
+
+    public void setCardNumberHash(String cardNumberHash) {
+        this.cardNumberHash = cardNumberHash;
+    }
+
+    public String getLast4() {
+        return last4;
+    }
+
+    public void setLast4(String last4) {
+        this.last4 = last4;
+    }
+
     public String getOwner() {
         return owner;
     }
@@ -92,6 +130,18 @@ public class Card {
         this.balance = balance;
     }
 
+    public int getBalanceStripes() {
+        return balanceStripes;
+    }
+
+    public void setBalanceStripes(int balanceStripes) {
+        this.balanceStripes = balanceStripes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public User getUser() {
         return user;
     }
@@ -101,24 +151,10 @@ public class Card {
     }
 
     /**
-     * Возвращает маскированный номер карты для отображения
+     * Возвращает маскированный номер карты для отображения.
+     * Строится из сохранённых last4, поэтому не требует расшифровки номера.
      */
     public String getMaskedCardNumber() {
-        if (cardNumber == null || cardNumber.length() < 4) {
-            return "****";
-        }
-
-        return "**** **** **** " + getLastFourDigits();
-    }
-
-    /**
-     * Получает последние 4 цифры номера карты (для маскирования)
-     * В реальном приложении это должно работать с зашифрованными данными
-     */
-    private String getLastFourDigits() {
-        if (cardNumber != null && cardNumber.length() >= 4) {
-            return cardNumber.substring(cardNumber.length() - 4);
-        }
-        return "****";
+        return CardUtils.maskLast4(last4);
     }
 }
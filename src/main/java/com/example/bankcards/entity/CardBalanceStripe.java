@@ -0,0 +1,79 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Полоса баланса горячей карты: часть зачислений, ещё не перенесённая в {@link Card#getBalance()}.
+ * Баланс карты — сумма card.balance и всех её полос.
+ */
+@Entity
+@Table(name = "card_balance_stripe")
+@IdClass(CardBalanceStripe.Key.class)
+public class CardBalanceStripe {
+
+    @Id
+    @Column(name = "card_id")
+    private Long cardId;
+
+    @Id
+    @Column(name = "stripe")
+    private Integer stripe;
+
+    @Column(nullable = false, columnDefinition = "NUMERIC(15, 2)")
+    private Double amount;
+
+    protected CardBalanceStripe() {}
+
+    public CardBalanceStripe(Long cardId, Integer stripe) {
+        this.cardId = cardId;
+        this.stripe = stripe;
+        this.amount = 0.0;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public static class Key implements Serializable {
+
+        private Long cardId;
+        private Integer stripe;
+
+        public Key() {}
+
+        public Key(Long cardId, Integer stripe) {
+            this.cardId = cardId;
+            this.stripe = stripe;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return Objects.equals(cardId, key.cardId) && Objects.equals(stripe, key.stripe);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(cardId, stripe);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Строка журнала движений по карте. Создаётся вместе с переводом и больше не меняется.
+ * <p>
+ * Карты хранятся как id, без связей: запись в журнал не загружает карты, а выписка
+ * читается проекцией {@code CardTransactionView}.
+ */
+@Entity
+@Table(name = "card_transaction")
+public class CardTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_transaction_seq")
+    @SequenceGenerator(name = "card_transaction_seq", sequenceName = "card_transaction_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "card_id", nullable = false, updatable = false)
+    private Long cardId;
+
+    @Column(name = "counterparty_card_id", nullable = false, updatable = false)
+    private Long counterpartyCardId;
+
+    @Column(nullable = false, updatable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private TransactionType type;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "NUMERIC(15, 2)")
+    private Double amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    protected CardTransaction() {}
+
+    public CardTransaction(Long cardId, Long counterpartyCardId, TransactionType type, Double amount,
+                           LocalDateTime createdAt) {
+        this.cardId = cardId;
+        this.counterpartyCardId = counterpartyCardId;
+        this.type = type;
+        this.amount = amount;
+        this.createdAt = createdAt;
+    }
+
+    public static CardTransaction debit(Long cardId, Long toCardId, Double amount, LocalDateTime createdAt) {
+        return new CardTransaction(cardId, toCardId, TransactionType.DEBIT, amount, createdAt);
+    }
+
+    public static CardTransaction credit(Long cardId, Long fromCardId, Double amount, LocalDateTime createdAt) {
+        return new CardTransaction(cardId, fromCardId, TransactionType.CREDIT, amount, createdAt);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getCardId() {
+        return cardId;
+    }
+
+    public Long getCounterpartyCardId() {
+        return counterpartyCardId;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
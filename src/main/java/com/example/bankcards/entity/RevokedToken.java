@@ -0,0 +1,43 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Отозванный JWT: jti токена и момент его истечения. После истечения строка не нужна —
+ * такой токен отклоняется по exp — и удаляется фоновой очисткой.
+ */
+@Entity
+@Table(name = "revoked_token")
+public class RevokedToken {
+
+    @Id
+    @Column(length = 64)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private LocalDateTime revokedAt;
+
+    protected RevokedToken() {}
+
+    public RevokedToken(String jti, LocalDateTime expiresAt, LocalDateTime revokedAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+        this.revokedAt = revokedAt;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public LocalDateTime getRevokedAt() {
+        return revokedAt;
+    }
+}
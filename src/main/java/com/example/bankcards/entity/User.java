@@ -1,10 +1,12 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.security.UserCacheEvictionListener;
 import jakarta.persistence.*;
 import java.util.Set;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheEvictionListener.class)
 public class User {
 
     @Id
@@ -0,0 +1,139 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.service.EncryptionService;
+import com.example.bankcards.util.CardUtils;
+import liquibase.Scope;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Liquibase-миграция: заполняет last4 и card_number_hash у карт, созданных до появления этих колонок.
+ * <p>
+ * Карты обрабатываются пачками по id (keyset), каждая пачка фиксируется отдельно,
+ * поэтому миграция не держит долгих блокировок и после сбоя продолжает с того же места.
+ * Строки, которые не удалось расшифровать, пропускаются с WARN в журнале, а после прохода миграция
+ * завершается ошибкой со списком их id: иначе такие карты молча не находились бы по номеру. Уже
+ * заполненные строки зафиксированы, и повторный запуск обрабатывает только оставшиеся.
+ * <p>
+ * Liquibase выполняется до создания бинов, поэтому ключ blind index берётся прямо из окружения —
+ * {@code ENCRYPTION_BLIND_INDEX_KEY} или {@code -Dencryption.blind-index-key}, как и у приложения.
+ * Он нужен, только если есть карты для заполнения.
+ */
+public class CardNumberBackfillChange implements CustomTaskChange {
+
+    static final String BLIND_INDEX_KEY_PROPERTY = "encryption.blind-index-key";
+    static final String BLIND_INDEX_KEY_VARIABLE = "ENCRYPTION_BLIND_INDEX_KEY";
+
+    private static final String SELECT_BATCH =
+            "SELECT id, card_number FROM card WHERE (last4 IS NULL OR card_number_hash IS NULL) AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_CARD =
+            "UPDATE card SET last4 = ?, card_number_hash = ? WHERE id = ?";
+
+    private static final int MAX_REPORTED_IDS = 100;
+
+    private int batchSize = 500;
+
+    private int updatedRows;
+    private final List<Long> skippedIds = new ArrayList<>();
+
+    public void setBatchSize(String batchSize) {
+        this.batchSize = Integer.parseInt(batchSize);
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        EncryptionService encryptionService = null;
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+
+        try (PreparedStatement select = connection.prepareStatement(SELECT_BATCH);
+             PreparedStatement update = connection.prepareStatement(UPDATE_CARD)) {
+            long lastId = 0;
+            while (true) {
+                List<Long> ids = new ArrayList<>(batchSize);
+                List<String> encryptedNumbers = new ArrayList<>(batchSize);
+
+                select.setLong(1, lastId);
+                select.setInt(2, batchSize);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                        encryptedNumbers.add(rs.getString(2));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                if (encryptionService == null) {
+                    encryptionService = EncryptionService.withoutMetrics(blindIndexKey());
+                }
+
+                for (int i = 0; i < ids.size(); i++) {
+                    try {
+                        String cardNumber = encryptionService.decrypt(encryptedNumbers.get(i));
+                        update.setString(1, CardUtils.lastFourDigits(cardNumber));
+                        update.setString(2, encryptionService.blindIndex(cardNumber));
+                        update.setLong(3, ids.get(i));
+                        update.addBatch();
+                        updatedRows++;
+                    } catch (RuntimeException e) {
+                        skippedIds.add(ids.get(i));
+                        Scope.getCurrentScope().getLog(getClass())
+                                .warning("Cannot backfill card " + ids.get(i) + ": " + e.getMessage());
+                    }
+                }
+                update.executeBatch();
+                database.commit();
+
+                lastId = ids.get(ids.size() - 1);
+            }
+        } catch (Exception e) {
+            throw new CustomChangeException("Card number backfill failed", e);
+        }
+
+        if (!skippedIds.isEmpty()) {
+            throw new CustomChangeException("Cannot backfill " + skippedIds.size() + " cards, ids: "
+                    + skippedIds.subList(0, Math.min(skippedIds.size(), MAX_REPORTED_IDS))
+                    + (skippedIds.size() > MAX_REPORTED_IDS ? " and more" : ""));
+        }
+    }
+
+    private static String blindIndexKey() throws CustomChangeException {
+        String key = System.getProperty(BLIND_INDEX_KEY_PROPERTY, System.getenv(BLIND_INDEX_KEY_VARIABLE));
+        if (key == null) {
+            throw new CustomChangeException(BLIND_INDEX_KEY_VARIABLE + " must be set to backfill card_number_hash");
+        }
+        return key;
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Backfilled last4 and card_number_hash for " + updatedRows + " cards";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        ValidationErrors errors = new ValidationErrors();
+        if (batchSize <= 0) {
+            errors.addError("batchSize must be positive");
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CardBalanceStripeRepository extends JpaRepository<CardBalanceStripe, CardBalanceStripe.Key> {
+
+    // Зачисление в полосу активной карты. Строка card только читается (без блокировки),
+    // поэтому параллельные зачисления в разные полосы одной карты не ждут друг друга.
+    @Modifying
+    @Query("update CardBalanceStripe s set s.amount = s.amount + :amount " +
+           "where s.cardId = :cardId and s.stripe = :stripe and exists (select c.id from Card c " +
+           "where c.id = :cardId and c.status = com.example.bankcards.entity.CardStatus.ACTIVE)")
+    int creditIfActive(@Param("cardId") Long cardId, @Param("stripe") int stripe, @Param("amount") Double amount);
+
+    // Полосы набора карт с блокировкой строк; порядок как у блокировки карт — по card_id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CardBalanceStripe s where s.cardId in :cardIds order by s.cardId, s.stripe")
+    List<CardBalanceStripe> findAllByCardIdsForUpdate(@Param("cardIds") Collection<Long> cardIds);
+
+    @Modifying
+    @Query("delete from CardBalanceStripe s where s.cardId = :cardId")
+    int deleteByCardId(@Param("cardId") Long cardId);
+}
@@ -1,25 +1,149 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardView;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
-    // Поиск карт по владельцу и статусу с пагинацией
-    List<Card> findByOwnerAndStatus(String owner, CardStatus status, Pageable pageable);
+    // Сколько строк драйвер забирает с сервера за один раз при потоковом чтении
+    int STREAM_FETCH_SIZE = 500;
 
-    // Поиск карт по пользователю
-    List<Card> findByUser(User user, Pageable pageable);
+    // Баланс карты в ответах: у горячей карты включает её полосы; для остальных подзапрос не выполняется
+    String CARD_BALANCE = "case when c.balanceStripes > 0 then c.balance + coalesce((select sum(s.amount) " +
+        "from CardBalanceStripe s where s.cardId = c.id), 0) else c.balance end";
 
-    // Поиск карт по пользователю и статусу
-    List<Card> findByUserAndStatus(User user, CardStatus status, Pageable pageable);
+    // Проекция CardView прямо из строк card: без сущностей и без обращения к users за user_id
+    String CARD_VIEW = "select new com.example.bankcards.dto.CardView(" +
+        "c.id, c.owner, c.last4, c.expirationDate, c.status, " + CARD_BALANCE + ", c.user.id, c.version) from Card c ";
 
     // Поиск всех карт пользователя
     List<Card> findByUser(User user);
+
+    @Query(CARD_VIEW + "order by c.id")
+    List<CardView> findAllViews();
+
+    @Query(CARD_VIEW + "where c.id = :id")
+    Optional<CardView> findViewById(@Param("id") Long id);
+
+    // Поиск карт по владельцу и статусу с пагинацией
+    @Query(CARD_VIEW + "where c.owner = :owner and c.status = :status")
+    List<CardView> findViewsByOwnerAndStatus(@Param("owner") String owner, @Param("status") CardStatus status,
+                                             Pageable pageable);
+
+    // Карты пользователя: фильтр по card.user_id, без соединения с users
+    @Query(CARD_VIEW + "where c.user.id = :userId")
+    List<CardView> findViewsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(CARD_VIEW + "where c.user.id = :userId and c.status = :status")
+    List<CardView> findViewsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") CardStatus status,
+                                              Pageable pageable);
+
+    // Keyset-пагинация: следующая страница после id, по индексам (user_id, id),
+    // (user_id, status, id) и (owner, status, id); Pageable задаёт только размер
+    @Query(CARD_VIEW + "where c.user.id = :userId and c.id > :afterId order by c.id")
+    List<CardView> findViewsByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
+    @Query(CARD_VIEW + "where c.user.id = :userId and c.status = :status and c.id > :afterId order by c.id")
+    List<CardView> findViewsByUserIdAndStatusAfter(@Param("userId") Long userId, @Param("status") CardStatus status,
+                                                   @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(CARD_VIEW + "where c.owner = :owner and c.status = :status and c.id > :afterId order by c.id")
+    List<CardView> findViewsByOwnerAndStatusAfter(@Param("owner") String owner, @Param("status") CardStatus status,
+                                                  @Param("afterId") Long afterId, Pageable pageable);
+
+    // Все карты по возрастанию id через серверный курсор (только внутри транзакции)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query(CARD_VIEW + "order by c.id")
+    Stream<CardView> streamAllViews();
+
+    // Только то, из чего строится ETag карты: [version, баланс как в CardView]
+    @Query("select c.version, " + CARD_BALANCE + " from Card c where c.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    // Сводка по картам пользователя для ETag списка: [count, sum(id), sum(version), сумма полос];
+    // любое изменение, добавление или удаление карты меняет хотя бы одно из чисел. Зачисления в полосы
+    // горячих карт версию карты не меняют, поэтому их сумма берётся подзапросом в том же выражении
+    @Query("select count(c), coalesce(sum(c.id), 0), coalesce(sum(c.version), 0), " +
+           "(select coalesce(sum(s.amount), 0) from CardBalanceStripe s, Card h " +
+           "where s.cardId = h.id and h.user.id = :userId and h.balanceStripes > 0) " +
+           "from Card c where c.user.id = :userId")
+    List<Object[]> summarizeVersionsByUserId(@Param("userId") Long userId);
+
+    // Горячие карты и число их полос: [id, balanceStripes]
+    @Query("select c.id, c.balanceStripes from Card c where c.balanceStripes > 0")
+    List<Object[]> findHotCards();
+
+    // Поиск карты по blind index номера (уникальный индекс idx_card_number_hash)
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
+
+    // Какие из blind index уже заняты: проверка дубликатов для целой порции массового выпуска
+    @Query("select c.cardNumberHash from Card c where c.cardNumberHash in :hashes")
+    List<String> findExistingCardNumberHashes(@Param("hashes") Collection<String> hashes);
+
+    // Чтение карты с блокировкой строки (SELECT ... FOR UPDATE) до конца транзакции
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    // Сколько карт из набора принадлежит пользователю: проверка владения без загрузки сущностей
+    @Query("select count(c) from Card c where c.id in :ids and c.user.id = :userId")
+    long countOwnedBy(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    // Блокировка набора карт одним запросом; порядок по id исключает взаимные блокировки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    // id карт из набора, принадлежащих пользователю (одна проверка владения на весь пакет)
+    @Query("select c.id from Card c where c.id in :ids and c.user.id = :userId")
+    List<Long> findIdsOwnedBy(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    // Порция просроченных активных карт под блокировкой. SKIP LOCKED: строки, занятые переводом
+    // или другим узлом, пропускаются без ожидания (на PostgreSQL; H2 блокирует обычным FOR UPDATE).
+    // Порядок по сроку действия идёт по частичному индексу idx_card_active_expiration
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_LOCK_TIMEOUT, value = "" + LockOptions.SKIP_LOCKED))
+    @Query("select c.id from Card c where c.expirationDate < :today " +
+           "and c.status = com.example.bankcards.entity.CardStatus.ACTIVE order by c.expirationDate, c.id")
+    List<Long> lockExpiredActiveIds(@Param("today") LocalDate today, Pageable limit);
+
+    @Modifying
+    @Query("update Card c set c.status = com.example.bankcards.entity.CardStatus.EXPIRED, c.version = c.version + 1 " +
+           "where c.id in :ids and c.status = com.example.bankcards.entity.CardStatus.ACTIVE")
+    int expireAll(@Param("ids") Collection<Long> ids);
+
+    // Атомарное списание: проходит только при достаточном балансе и активной карте.
+    // version увеличивается явно, как при обновлении сущности (update versioned в Hibernate 6.1 сбоит)
+    @Modifying
+    @Query("update Card c set c.balance = c.balance - :amount, c.version = c.version + 1 " +
+           "where c.id = :id and c.balance >= :amount and c.status = com.example.bankcards.entity.CardStatus.ACTIVE")
+    int debitIfSufficient(@Param("id") Long id, @Param("amount") Double amount);
+
+    // Атомарное зачисление на активную карту
+    @Modifying
+    @Query("update Card c set c.balance = c.balance + :amount, c.version = c.version + 1 " +
+           "where c.id = :id and c.status = com.example.bankcards.entity.CardStatus.ACTIVE")
+    int creditIfActive(@Param("id") Long id, @Param("amount") Double amount);
 }
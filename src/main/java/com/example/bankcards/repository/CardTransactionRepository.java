@@ -0,0 +1,29 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardTransactionView;
+import com.example.bankcards.entity.CardTransaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long> {
+
+    // Выписка от новых к старым: created_at в [from, before], курсор — позиция (created_at, id)
+    // последней выданной строки. Сравнение кортежей — одна граница диапазона по индексу
+    // (card_id, created_at, id); Pageable задаёт только размер.
+    @Query("select new com.example.bankcards.dto.CardTransactionView(" +
+           "t.id, t.cardId, t.counterpartyCardId, t.type, t.amount, t.createdAt) from CardTransaction t " +
+           "where t.cardId = :cardId and t.createdAt >= :from and (t.createdAt, t.id) < (:beforeAt, :beforeId) " +
+           "order by t.createdAt desc, t.id desc")
+    List<CardTransactionView> findViewsByCardIdBefore(@Param("cardId") Long cardId,
+                                                      @Param("from") LocalDateTime from,
+                                                      @Param("beforeAt") LocalDateTime beforeAt,
+                                                      @Param("beforeId") Long beforeId,
+                                                      Pageable pageable);
+}
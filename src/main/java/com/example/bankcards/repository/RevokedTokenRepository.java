@@ -0,0 +1,30 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RevokedToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    // Неистёкшие отзывы порциями по первичному ключу: курсор — jti последней строки предыдущей порции
+    @Query("select r from RevokedToken r where r.expiresAt > :now and r.jti > :after order by r.jti")
+    List<RevokedToken> findActiveAfter(@Param("now") LocalDateTime now, @Param("after") String after, Pageable pageable);
+
+    // Отзывы, сделанные начиная с since (в том числе на других узлах), по индексу revoked_at
+    @Query("select r from RevokedToken r where r.revokedAt >= :since and r.expiresAt > :now")
+    List<RevokedToken> findRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedToken r where r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
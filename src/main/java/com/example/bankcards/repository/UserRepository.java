@@ -2,11 +2,27 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    // Какие id из набора существуют — без загрузки пользователей
+    @Query("select u.id from User u where u.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Замена хэша пароля, только если он не изменился с момента чтения (пароль могли сменить параллельно)
+    @Modifying
+    @Transactional
+    @Query("update User u set u.password = :password where u.id = :id and u.password = :expected")
+    int updatePassword(@Param("id") Long id, @Param("expected") String expected, @Param("password") String password);
 }
@@ -0,0 +1,91 @@
+package com.example.bankcards.security;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума по UUID: ответ «нет» точен, «возможно» ложен с вероятностью около заданной,
+ * пока элементов не больше расчётной ёмкости.
+ * <p>
+ * Размер считается по формулам m = -n·ln p / ln²2 бит и k = m/n·ln 2 хэшей; k позиций получаются
+ * двойным хэшированием h1 + i·h2 от двух перемешанных половин UUID. Проверка не берёт блокировок;
+ * удаления нет — для этого фильтр пересобирается ({@link TokenRevocationList}).
+ */
+final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final int capacity;
+
+    BloomFilter(int expectedEntries, double falsePositiveRate) {
+        if (expectedEntries <= 0) {
+            throw new IllegalArgumentException("Expected entries must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        long bits = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * LN2));
+        this.capacity = expectedEntries;
+    }
+
+    void put(UUID key) {
+        long h1 = h1(key);
+        long h2 = h2(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+    }
+
+    boolean mightContain(UUID key) {
+        long h1 = h1(key);
+        long h2 = h2(key);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    private long index(long hash) {
+        return (hash & Long.MAX_VALUE) % bitCount;
+    }
+
+    // Обе половины участвуют в каждом хэше: jti не обязан быть случайным UUID
+    private static long h1(UUID key) {
+        return mix(key.getMostSignificantBits() ^ mix(key.getLeastSignificantBits()));
+    }
+
+    // Нечётный шаг не вырождается в одну позицию
+    private static long h2(UUID key) {
+        return mix(key.getLeastSignificantBits() + 0x9E3779B97F4A7C15L * key.getMostSignificantBits()) | 1;
+    }
+
+    // Финализатор SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
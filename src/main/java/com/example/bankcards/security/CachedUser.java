@@ -0,0 +1,46 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Неизменяемый снимок пользователя для {@link UserCache}: только то, что нужно
+ * для авторизации и запросов по user_id. Хэш пароля сюда не попадает.
+ * <p>
+ * Он же — principal аутентификации, собранной из JWT ({@link JwtUtil#getAuthentication}),
+ * поэтому {@code authentication.name} остаётся именем пользователя.
+ */
+public final class CachedUser implements AuthenticatedPrincipal {
+
+    private final Long id;
+    private final String username;
+    private final Role role;
+
+    public CachedUser(Long id, String username, Role role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+    }
+
+    public static CachedUser from(User user) {
+        return new CachedUser(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
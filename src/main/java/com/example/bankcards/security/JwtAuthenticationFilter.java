@@ -1,5 +1,9 @@
 package com.example.bankcards.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,13 +13,19 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    // Разбор и проверка токена (включая попадания в VerifiedTokenCache), по исходу
+    private final Timer validTokenTimer;
+    private final Timer invalidTokenTimer;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
+        this.validTokenTimer = parseTimer(meterRegistry, "valid");
+        this.invalidTokenTimer = parseTimer(meterRegistry, "invalid");
     }
 
     @Override
@@ -27,12 +37,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (token != null && token.startsWith("Bearer ")) {
             token = token.substring(7);
-            String username = jwtUtil.extractUsername(token);
-            if (username != null && jwtUtil.validateToken(token, username)) {
-                SecurityContextHolder.getContext().setAuthentication(jwtUtil.getAuthentication(token));
+            long start = System.nanoTime();
+            try {
+                // Один разбор токена на запрос: дальше работаем только с claims
+                Claims claims = jwtUtil.extractAllClaims(token);
+                String username = claims.getSubject();
+                if (username != null && jwtUtil.validateClaims(claims, username)) {
+                    SecurityContextHolder.getContext().setAuthentication(jwtUtil.getAuthentication(claims));
+                }
+                validTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (JwtException | IllegalArgumentException e) {
+                invalidTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                // Невалидный токен — запрос продолжается без аутентификации
+                SecurityContextHolder.clearContext();
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private static Timer parseTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("bankcards.jwt.parse")
+            .description("JWT parsing and validation in the authentication filter")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
 }
@@ -1,23 +1,50 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
-    private final String SECRET_KEY = "mysecretkey";
+    static final String ROLE_CLAIM = "role";
+    static final String USER_ID_CLAIM = "userId";
+
+    private final Key signingKey;
+    // JwtParser неизменяем и потокобезопасен, поэтому собираем его один раз
+    private final JwtParser parser;
+    private final VerifiedTokenCache tokenCache;
+    private final UserCache userCache;
+    private final TokenRevocationList revocationList;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret, VerifiedTokenCache tokenCache, UserCache userCache,
+                   TokenRevocationList revocationList) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.tokenCache = tokenCache;
+        this.userCache = userCache;
+        this.revocationList = revocationList;
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -32,12 +59,21 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(SECRET_KEY.getBytes()).build().parseClaimsJws(token).getBody();
+    /**
+     * Возвращает claims токена, проверяя подпись только при первом обращении.
+     * Повторные вызовы для того же токена обслуживаются из {@link VerifiedTokenCache}.
+     */
+    public Claims extractAllClaims(String token) {
+        Claims claims = tokenCache.get(token);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            tokenCache.put(token, claims);
+        }
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     public String generateToken(String username) {
@@ -45,19 +81,70 @@ public class JwtUtil {
         return createToken(claims, username);
     }
 
+    /**
+     * Токен с ролью и id пользователя: по нему аутентификация собирается без обращения к БД.
+     * Смена роли вступает в силу для уже выданных токенов только после их истечения.
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(ROLE_CLAIM, user.getRole().name());
+        claims.put(USER_ID_CLAIM, user.getId());
+        return createToken(claims, user.getUsername());
+    }
+
+    // jti — UUID: по нему токен отзывается до истечения (TokenRevocationList)
     private String createToken(Map<String, Object> claims, String subject) {
-        return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date())
+        return Jwts.builder().setClaims(claims).setId(UUID.randomUUID().toString())
+                .setSubject(subject).setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10))
-                .signWith(SignatureAlgorithm.HS256, Keys.hmacShaKeyFor(SECRET_KEY.getBytes())).compact();
+                .signWith(signingKey, SignatureAlgorithm.HS256).compact();
     }
 
     public Authentication getAuthentication(String token) {
-        String username = extractUsername(token);
-        return new UsernamePasswordAuthenticationToken(username, null, new ArrayList<>());
+        return getAuthentication(extractAllClaims(token));
+    }
+
+    /**
+     * Аутентификация из claims. Роль и id берутся из самого токена; для токенов без этих
+     * claims (выданных до их появления) — из {@link UserCache}. Principal — {@link CachedUser}.
+     */
+    public Authentication getAuthentication(Claims claims) {
+        Optional<CachedUser> user = userFromClaims(claims).or(() -> userCache.findByUsername(claims.getSubject()));
+        if (user.isEmpty()) {
+            return new UsernamePasswordAuthenticationToken(claims.getSubject(), null, List.of());
+        }
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.get().getRole()));
+        return new UsernamePasswordAuthenticationToken(user.get(), null, authorities);
+    }
+
+    private static Optional<CachedUser> userFromClaims(Claims claims) {
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        if (role == null || userId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CachedUser(userId, claims.getSubject(), Role.valueOf(role)));
     }
 
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        return validateClaims(extractAllClaims(token), username);
+    }
+
+    public Boolean validateClaims(Claims claims, String username) {
+        return (claims.getSubject().equals(username) && !isTokenExpired(claims)
+                && !revocationList.isRevoked(claims.getId()));
+    }
+
+    /**
+     * Отзывает токен до истечения (выход из системы).
+     *
+     * @return false, если токен уже отозван или истёк
+     * @throws IllegalArgumentException у токена нет jti (выдан до его появления)
+     */
+    public boolean revoke(Claims claims) {
+        if (claims.getId() == null) {
+            throw new IllegalArgumentException("Token has no id and cannot be revoked");
+        }
+        return revocationList.revoke(claims.getId(), claims.getExpiration());
     }
 }
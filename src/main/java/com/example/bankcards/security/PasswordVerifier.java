@@ -0,0 +1,174 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка паролей при логине на отдельном пуле потоков.
+ * <p>
+ * BCrypt занимает процессор на десятки миллисекунд, поэтому проверки выполняются пулом по числу
+ * ядер с ограниченной очередью, а не потоками запросов: при волне логинов чтение карт и переводы
+ * продолжают обслуживаться. Если очередь заполнена, проверка не ставится и логин сразу получает отказ.
+ * <p>
+ * Хэш с cost, отличным от {@code auth.password.bcrypt-strength}, после успешной проверки
+ * пересчитывается с целевым cost и сохраняется — так смена cost доходит до всех активных пользователей.
+ * Пересчёт — второй полный BCrypt, поэтому он идёт отдельной фоновой задачей в один поток, а не в пуле
+ * проверок: пока ждут логины или очередь пересчётов заполнена, он пропускается и повторится при
+ * следующем входе. Иначе во время смены cost каждый вход занимал бы поток пула на два хэша.
+ */
+@Component
+public class PasswordVerifier implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordVerifier.class);
+
+    // $2a$10$... — версия BCrypt и cost
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+    private static final int REHASH_QUEUE_CAPACITY = 16;
+
+    private final PasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor rehashExecutor;
+    // Время проверки пароля (BCrypt) — основная стоимость логина
+    private final Timer passwordMatchTimer;
+    private final Timer passwordMismatchTimer;
+    private final Counter rehashCounter;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rehashSkipped = new LongAdder();
+
+    public PasswordVerifier(PasswordEncoder passwordEncoder, UserRepository userRepository, MeterRegistry meterRegistry,
+                            @Value("${auth.password.bcrypt-strength:10}") int strength,
+                            @Value("${auth.password.threads:0}") int threads,
+                            @Value("${auth.password.queue-capacity:64}") int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("auth.password.queue-capacity must be positive");
+        }
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.strength = strength;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "bcrypt-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.rehashExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(REHASH_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "bcrypt-rehash");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, (runnable, pool) -> rehashSkipped.increment());
+
+        this.passwordMatchTimer = passwordTimer(meterRegistry, "match");
+        this.passwordMismatchTimer = passwordTimer(meterRegistry, "mismatch");
+        this.rehashCounter = Counter.builder("bankcards.auth.password.rehash")
+            .description("Password hashes re-encoded with the configured BCrypt cost on login")
+            .register(meterRegistry);
+        FunctionCounter.builder("bankcards.auth.password.rehash.skipped", rehashSkipped, LongAdder::sum)
+            .description("Password rehashes skipped because logins were waiting; retried on the next login")
+            .register(meterRegistry);
+        FunctionCounter.builder("bankcards.auth.password.rejected", rejected, LongAdder::sum)
+            .description("Logins shed because the password verification queue was full")
+            .register(meterRegistry);
+        Gauge.builder("bankcards.auth.password.queue", executor, e -> e.getQueue().size())
+            .description("Password verifications waiting for a thread")
+            .register(meterRegistry);
+        Gauge.builder("bankcards.auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Password verifications in progress")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Ставит проверку пароля пользователя в очередь.
+     *
+     * @return true, если пароль верный
+     * @throws RejectedExecutionException очередь заполнена
+     */
+    public CompletableFuture<Boolean> verify(User user, String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> matches(user, rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        rehashExecutor.shutdownNow();
+    }
+
+    private boolean matches(User user, String rawPassword) {
+        long start = System.nanoTime();
+        boolean matches = passwordEncoder.matches(rawPassword, user.getPassword());
+        (matches ? passwordMatchTimer : passwordMismatchTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (matches && needsRehash(user.getPassword())) {
+            scheduleRehash(user, rawPassword);
+        }
+        return matches;
+    }
+
+    // Хэш не BCrypt (cost не разобрать) не трогаем: его формат задаёт кодировщик
+    boolean needsRehash(String encodedPassword) {
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    // Очередь проверяется при запуске пересчёта: логины, пришедшие после постановки, тоже важнее
+    private void scheduleRehash(User user, String rawPassword) {
+        rehashExecutor.execute(() -> {
+            if (!executor.getQueue().isEmpty()) {
+                rehashSkipped.increment();
+                return;
+            }
+            rehash(user, rawPassword);
+        });
+    }
+
+    private void rehash(User user, String rawPassword) {
+        try {
+            userRepository.updatePassword(user.getId(), user.getPassword(), passwordEncoder.encode(rawPassword));
+            rehashCounter.increment();
+        } catch (RuntimeException e) {
+            // Логин не зависит от пересчёта: старый хэш остаётся рабочим, попытка повторится при следующем входе
+            log.warn("Failed to rehash password of user {}", user.getId(), e);
+        }
+    }
+
+    private static Timer passwordTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("bankcards.auth.password.check")
+            .description("Password hash verification on login")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.bankcards.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отклоняет с 429 и Retry-After запросы сверх лимитов {@link RateLimiter}.
+ * <p>
+ * Стоит перед {@link JwtAuthenticationFilter}: отказ не тратит ни проверку пароля, ни соединение
+ * с БД. Пользователь — subject токена (подпись проверяется, так что чужой лимит не израсходовать;
+ * повторный разбор в JwtAuthenticationFilter берётся из {@link VerifiedTokenCache}).
+ * У запросов без токена (логин) — поле username из JSON-тела; тело затем отдаётся дальше как было.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // Больше логину не нужно; длинное тело передаётся дальше, но лимит по пользователю к нему не применяется
+    private static final int MAX_BODY_BYTES = 8 * 1024;
+
+    private final RateLimiter rateLimiter;
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimiter rateLimiter, JwtUtil jwtUtil, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        RateLimiter.Rule rule = rateLimiter.match(request);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest forwarded = request;
+        String username = null;
+        if (rule.hasUserLimit()) {
+            String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (header != null && header.startsWith("Bearer ")) {
+                username = subjectOf(header.substring(7));
+            } else if (isJson(request)) {
+                BufferedBodyRequest buffered = new BufferedBodyRequest(request);
+                forwarded = buffered;
+                username = usernameOf(buffered);
+            }
+        }
+
+        // IP — адрес соединения; за прокси его подставляет server.forward-headers-strategy
+        long waitNanos = rateLimiter.acquire(rule, request.getRemoteAddr(), username);
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+        filterChain.doFilter(forwarded, response);
+    }
+
+    private String subjectOf(String token) {
+        try {
+            return jwtUtil.extractAllClaims(token).getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
+            // Невалидный токен отклонит цепочка безопасности; лимит — только по IP
+            return null;
+        }
+    }
+
+    private String usernameOf(BufferedBodyRequest request) {
+        if (request.truncated) {
+            return null;
+        }
+        try {
+            JsonNode username = objectMapper.readTree(request.prefix).get("username");
+            return username != null && username.isTextual() ? username.asText() : null;
+        } catch (IOException e) {
+            // Некорректный JSON отклонит контроллер
+            return null;
+        }
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("timestamp", LocalDateTime.now().toString());
+        error.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        error.put("error", "Слишком много запросов");
+        error.put("message", "Rate limit exceeded");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static boolean isJson(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            return MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Запрос, у которого начало тела (до {@link #MAX_BODY_BYTES}) уже прочитано фильтром;
+     * при чтении дальше по цепочке отдаётся прочитанное, затем — остаток исходного потока.
+     */
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] prefix;
+        private final boolean truncated;
+        private ServletInputStream body;
+
+        BufferedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.prefix = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            this.truncated = prefix.length > MAX_BODY_BYTES;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                ServletInputStream original = super.getInputStream();
+                ByteArrayInputStream buffered = new ByteArrayInputStream(prefix);
+                body = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        return buffered.available() > 0 ? buffered.read() : original.read();
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        return buffered.available() > 0 ? buffered.read(b, off, len) : original.read(b, off, len);
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return buffered.available() == 0 && original.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return buffered.available() > 0 || original.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        throw new UnsupportedOperationException("Asynchronous body reading is not supported");
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                encoding != null ? encoding : StandardCharsets.UTF_8.name()));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Настройки ограничения частоты запросов ({@code rate-limit.*}), см. {@link RateLimiter}.
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    // Общий предел числа вёдер (ключей IP и пользователей) на узел
+    private int maxKeys = 100_000;
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public Map<String, Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Ограничиваемый эндпоинт: шаблон пути (Ant), метод (пустой — любой) и лимиты по ключам.
+     * Лимит, который не задан, не проверяется.
+     */
+    public static class Endpoint {
+
+        private String path;
+        private String method;
+        private Limit perIp;
+        private Limit perUser;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public Limit getPerIp() {
+            return perIp;
+        }
+
+        public void setPerIp(Limit perIp) {
+            this.perIp = perIp;
+        }
+
+        public Limit getPerUser() {
+            return perUser;
+        }
+
+        public void setPerUser(Limit perUser) {
+            this.perUser = perUser;
+        }
+    }
+
+    /**
+     * Не больше {@code limit} запросов за {@code period}; весь лимит можно израсходовать подряд.
+     */
+    public static class Limit {
+
+        private int limit;
+        private Duration period = Duration.ofMinutes(1);
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public void setLimit(int limit) {
+            this.limit = limit;
+        }
+
+        public Duration getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(Duration period) {
+            this.period = period;
+        }
+    }
+}
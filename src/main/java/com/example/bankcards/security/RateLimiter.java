@@ -0,0 +1,194 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничение частоты запросов на узле: по ведру {@link TokenBucket} на IP клиента и на
+ * пользователя для каждого эндпоинта из {@code rate-limit.endpoints}.
+ * <p>
+ * Вёдра создаются при первом запросе ключа. Память ограничена {@code rate-limit.max-keys}:
+ * при переполнении сначала удаляются полные вёдра (они ничем не отличаются от новых),
+ * затем — десятая часть ёмкости.
+ */
+@Component
+public class RateLimiter implements MeterBinder {
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final int maxKeys;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+
+    public RateLimiter(RateLimitProperties properties) {
+        if (properties.getMaxKeys() <= 0) {
+            throw new IllegalArgumentException("rate-limit.max-keys must be positive");
+        }
+        this.maxKeys = properties.getMaxKeys();
+        properties.getEndpoints().forEach((name, endpoint) -> rules.add(new Rule(name, endpoint)));
+    }
+
+    /**
+     * Первое правило, под которое попадает запрос, или null.
+     */
+    public Rule match(HttpServletRequest request) {
+        for (Rule rule : rules) {
+            if (rule.matcher.matches(request)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Берёт токен из ведра IP и, если пользователь известен, из ведра пользователя.
+     *
+     * @return 0, если запрос разрешён; иначе через сколько наносекунд его можно повторить
+     */
+    public long acquire(Rule rule, String clientIp, String username) {
+        long now = System.nanoTime();
+        long wait = 0;
+        if (rule.perIp != null && clientIp != null) {
+            wait = bucket(rule.name + ":ip:" + clientIp, rule.perIp, now).tryAcquire(now);
+            if (wait > 0) {
+                rule.rejectedByIp.increment();
+                return wait;
+            }
+        }
+        if (rule.perUser != null && username != null) {
+            wait = bucket(rule.name + ":user:" + username, rule.perUser, now).tryAcquire(now);
+            if (wait > 0) {
+                rule.rejectedByUser.increment();
+            }
+        }
+        return wait;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Rule rule : rules) {
+            FunctionCounter.builder("bankcards.ratelimit.rejected", rule.rejectedByIp, LongAdder::sum)
+                .description("Requests rejected with 429")
+                .tags("endpoint", rule.name, "key", "ip")
+                .register(registry);
+            FunctionCounter.builder("bankcards.ratelimit.rejected", rule.rejectedByUser, LongAdder::sum)
+                .description("Requests rejected with 429")
+                .tags("endpoint", rule.name, "key", "user")
+                .register(registry);
+        }
+        Gauge.builder("bankcards.ratelimit.buckets", this, RateLimiter::size)
+            .description("Token buckets held in memory")
+            .register(registry);
+        FunctionCounter.builder("bankcards.ratelimit.evictions", this, RateLimiter::getEvictionCount)
+            .description("Token buckets evicted to stay within rate-limit.max-keys")
+            .register(registry);
+    }
+
+    private TokenBucket bucket(String key, Limit limit, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            shrink(now);
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(limit.capacity, limit.intervalNanos, now));
+    }
+
+    // Удаление неполного ведра сбрасывает его лимит — поэтому оно идёт только после полных
+    private void shrink(long now) {
+        buckets.values().removeIf(bucket -> {
+            boolean full = bucket.isFull(now);
+            if (full) {
+                evictions.increment();
+            }
+            return full;
+        });
+
+        int target = maxKeys - Math.max(1, maxKeys / 10);
+        Iterator<TokenBucket> it = buckets.values().iterator();
+        while (buckets.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Эндпоинт из настроек с уже разобранными лимитами.
+     */
+    public static final class Rule {
+
+        private final String name;
+        private final AntPathRequestMatcher matcher;
+        private final Limit perIp;
+        private final Limit perUser;
+        private final LongAdder rejectedByIp = new LongAdder();
+        private final LongAdder rejectedByUser = new LongAdder();
+
+        private Rule(String name, RateLimitProperties.Endpoint endpoint) {
+            if (!StringUtils.hasText(endpoint.getPath())) {
+                throw new IllegalArgumentException("rate-limit.endpoints." + name + ".path is required");
+            }
+            this.name = name;
+            this.matcher = new AntPathRequestMatcher(endpoint.getPath(),
+                StringUtils.hasText(endpoint.getMethod()) ? endpoint.getMethod() : null);
+            this.perIp = Limit.of(name, endpoint.getPerIp());
+            this.perUser = Limit.of(name, endpoint.getPerUser());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean hasUserLimit() {
+            return perUser != null;
+        }
+    }
+
+    private static final class Limit {
+
+        private final int capacity;
+        private final long intervalNanos;
+
+        private Limit(int capacity, long intervalNanos) {
+            this.capacity = capacity;
+            this.intervalNanos = intervalNanos;
+        }
+
+        static Limit of(String endpoint, RateLimitProperties.Limit limit) {
+            if (limit == null) {
+                return null;
+            }
+            if (limit.getLimit() <= 0 || limit.getPeriod() == null || limit.getPeriod().isNegative()
+                    || limit.getPeriod().isZero()) {
+                throw new IllegalArgumentException("Invalid rate limit for endpoint " + endpoint);
+            }
+            return new Limit(limit.getLimit(), Math.max(1, limit.getPeriod().toNanos() / limit.getLimit()));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket без блокировок.
+ * <p>
+ * Состояние — одно число: момент ({@link System#nanoTime()}), в который ведро было бы пустым.
+ * Токены пополняются лениво: при обращении их число — {@code (now - emptyAt) / interval}, но не
+ * больше ёмкости. Взятие токена сдвигает emptyAt на один интервал одним CAS, поэтому
+ * конкурирующие потоки не ждут друг друга, а только повторяют CAS.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long fillNanos;
+    private final AtomicLong emptyAt;
+
+    /**
+     * @param capacity      сколько запросов можно выполнить подряд
+     * @param intervalNanos за сколько наносекунд восстанавливается один токен
+     * @param now           текущее время; новое ведро полное
+     */
+    TokenBucket(int capacity, long intervalNanos, long now) {
+        if (capacity <= 0 || intervalNanos <= 0) {
+            throw new IllegalArgumentException("Bucket capacity and refill interval must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.fillNanos = capacity * intervalNanos;
+        this.emptyAt = new AtomicLong(now - fillNanos);
+    }
+
+    /**
+     * @return 0, если токен взят; иначе сколько наносекунд осталось до следующего токена
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = emptyAt.get();
+            // Сверх ёмкости токены не копятся
+            long next = Math.max(current, now - fillNanos) + intervalNanos;
+            if (next - now > 0) {
+                return next - now;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Полное ведро неотличимо от нового, поэтому его можно удалить без потери состояния.
+     */
+    boolean isFull(long now) {
+        return now - emptyAt.get() >= fillNanos;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Отозванные до истечения JWT (по claim jti), проверяемые на каждом запросе без обращения к БД.
+ * <p>
+ * Перед точным множеством jti → exp стоит {@link BloomFilter}: для неотозванного токена — а это
+ * почти все запросы — проверка заканчивается на нескольких битах фильтра. Отзывы хранятся в таблице
+ * revoked_token; при старте узел загружает неистёкшие, затем раз в {@code jwt.revocation.sync-interval}
+ * догружает сделанные на других узлах. Раз в {@code jwt.revocation.purge-interval} истёкшие записи
+ * удаляются из памяти и БД, а фильтр пересобирается: удалять из фильтра Блума нельзя.
+ */
+@Component
+public class TokenRevocationList implements InitializingBean, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    // Запас на расхождение часов узлов и на транзакции, закоммиченные позже своего revoked_at
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository repository;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+
+    // jti → exp токена (мс); UUID вдвое компактнее строки
+    private final Map<UUID, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    // Добавления и пересборка фильтра не должны перемежаться: иначе добавленный jti потеряется
+    private final Object writeLock = new Object();
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+
+    private final LongAdder filteredOut = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public TokenRevocationList(RevokedTokenRepository repository,
+                               @Value("${jwt.revocation.expected-entries:1000000}") int expectedEntries,
+                               @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        load();
+    }
+
+    /**
+     * Отозван ли токен с этим jti. Токены без jti (выданные до его появления) отозвать нельзя.
+     */
+    public boolean isRevoked(String jti) {
+        UUID key = key(jti);
+        if (key == null) {
+            return false;
+        }
+        if (!filter.mightContain(key)) {
+            filteredOut.increment();
+            return false;
+        }
+        if (!revoked.containsKey(key)) {
+            falsePositives.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Отзывает токен до его истечения: запись в БД, затем в локальный список.
+     *
+     * @return false, если токен уже отозван или истёк
+     * @throws IllegalArgumentException jti не UUID
+     */
+    public boolean revoke(String jti, Date expiresAt) {
+        UUID key = UUID.fromString(jti);
+        long expiresAtMillis = expiresAt.getTime();
+        if (expiresAtMillis <= System.currentTimeMillis() || revoked.containsKey(key)) {
+            return false;
+        }
+        repository.save(new RevokedToken(jti, toLocalDateTime(expiresAtMillis), LocalDateTime.now()));
+        add(key, expiresAtMillis);
+        return true;
+    }
+
+    /**
+     * Догружает отзывы, сделанные с прошлой синхронизации (с запасом {@link #SYNC_OVERLAP}).
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.sync-interval:PT5S}",
+               fixedDelayString = "${jwt.revocation.sync-interval:PT5S}")
+    public void sync() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (RevokedToken token : repository.findRevokedSince(lastSync.minus(SYNC_OVERLAP), now)) {
+                add(token);
+            }
+            lastSync = now;
+        } catch (RuntimeException e) {
+            // lastSync не сдвинут: следующая синхронизация заберёт и эти отзывы
+            log.warn("Token revocation sync failed", e);
+        }
+    }
+
+    /**
+     * Удаляет истёкшие отзывы из памяти и из БД; фильтр собирается заново из оставшихся.
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.purge-interval:PT10M}",
+               fixedDelayString = "${jwt.revocation.purge-interval:PT10M}")
+    public void purge() {
+        long now = System.currentTimeMillis();
+        synchronized (writeLock) {
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            rebuildFilter();
+        }
+        try {
+            repository.deleteExpired(toLocalDateTime(now));
+        } catch (RuntimeException e) {
+            // Истёкшие строки не мешают: их удалит следующая очистка
+            log.warn("Failed to delete expired revoked tokens", e);
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    public long getFilteredOutCount() {
+        return filteredOut.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bankcards.jwt.revoked", this, TokenRevocationList::size)
+            .description("Revoked tokens that have not expired yet")
+            .register(registry);
+        FunctionCounter.builder("bankcards.jwt.revocation.checks", this, TokenRevocationList::getFilteredOutCount)
+            .description("Token revocation checks by outcome")
+            .tag("result", "filtered")
+            .register(registry);
+        FunctionCounter.builder("bankcards.jwt.revocation.checks", this, TokenRevocationList::getFalsePositiveCount)
+            .description("Token revocation checks by outcome")
+            .tag("result", "false-positive")
+            .register(registry);
+        FunctionCounter.builder("bankcards.jwt.revocation.checks", this, TokenRevocationList::getHitCount)
+            .description("Token revocation checks by outcome")
+            .tag("result", "revoked")
+            .register(registry);
+    }
+
+    // Загрузка порциями по jti: миллионы строк не поднимаются в память одним списком сущностей
+    private void load() {
+        LocalDateTime now = LocalDateTime.now();
+        Pageable chunk = PageRequest.of(0, LOAD_CHUNK_SIZE);
+        String after = "";
+        List<RevokedToken> tokens;
+        do {
+            tokens = repository.findActiveAfter(now, after, chunk);
+            for (RevokedToken token : tokens) {
+                add(token);
+            }
+            if (!tokens.isEmpty()) {
+                after = tokens.get(tokens.size() - 1).getJti();
+            }
+        } while (tokens.size() == LOAD_CHUNK_SIZE);
+        lastSync = now;
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    private void add(RevokedToken token) {
+        UUID key = key(token.getJti());
+        if (key == null) {
+            log.warn("Skipping revoked token with malformed id {}", token.getJti());
+            return;
+        }
+        add(key, token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private void add(UUID key, long expiresAtMillis) {
+        synchronized (writeLock) {
+            if (revoked.putIfAbsent(key, expiresAtMillis) != null) {
+                return;
+            }
+            // Сверх расчётной ёмкости доля ложных срабатываний растёт — фильтр вдвое больше
+            if (revoked.size() > filter.capacity()) {
+                rebuildFilter();
+            } else {
+                filter.put(key);
+            }
+        }
+    }
+
+    // Вызывается под writeLock
+    private void rebuildFilter() {
+        int capacity = Math.max(expectedEntries, revoked.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(capacity, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    // jti выдаёт JwtUtil, и это всегда UUID; другое значение не может быть отозвано
+    private static UUID key(String jti) {
+        if (jti == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(jti);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш пользователей по имени перед {@link UserRepository#findByUsername}: id, имя и роль.
+ * <p>
+ * Общий для сервисов и слоя безопасности. Запись живёт не дольше TTL; при сохранении
+ * или удалении пользователя она вытесняется сразу ({@link UserCacheEvictionListener}).
+ * Отсутствующие пользователи не кэшируются.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private final UserRepository userRepository;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${users.cache.max-size:10000}") int maxSize,
+                     @Value("${users.cache.ttl:5m}") Duration ttl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("User cache size must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("User cache TTL must be positive");
+        }
+        this.userRepository = userRepository;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Пользователь по имени: из кэша, а при промахе — из БД с сохранением в кэш.
+     */
+    public Optional<CachedUser> findByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        Entry entry = entries.get(username);
+        if (entry != null) {
+            if (entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return Optional.of(entry.user);
+            }
+            if (entries.remove(username, entry)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        Optional<CachedUser> user = userRepository.findByUsername(username).map(CachedUser::from);
+        user.ifPresent(this::put);
+        return user;
+    }
+
+    /**
+     * Кладёт в кэш пользователя, уже загруженного вызывающим кодом (например, при логине).
+     */
+    public void put(User user) {
+        put(CachedUser.from(user));
+    }
+
+    private void put(CachedUser user) {
+        if (entries.size() >= maxSize) {
+            shrink();
+        }
+        entries.put(user.getUsername(), new Entry(user, System.nanoTime() + ttlNanos));
+    }
+
+    /**
+     * Вытесняет пользователя по имени и по id — на случай, если имя было изменено.
+     */
+    public void evict(User user) {
+        if (user.getUsername() != null && entries.remove(user.getUsername()) != null) {
+            evictions.increment();
+        }
+        if (user.getId() != null) {
+            entries.values().removeIf(entry -> {
+                boolean matches = user.getId().equals(entry.user.getId());
+                if (matches) {
+                    evictions.increment();
+                }
+                return matches;
+            });
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Имена и теги как у кэшей в Micrometer (cache.gets, cache.evictions, cache.size)
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, UserCache::getHitCount)
+            .tags("cache", "users", "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("cache.gets", this, UserCache::getMissCount)
+            .tags("cache", "users", "result", "miss")
+            .register(registry);
+        FunctionCounter.builder("cache.evictions", this, UserCache::getEvictionCount)
+            .tag("cache", "users")
+            .register(registry);
+        Gauge.builder("cache.size", this, UserCache::size)
+            .tag("cache", "users")
+            .register(registry);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Как в VerifiedTokenCache: сначала истёкшие записи, затем десятая часть ёмкости
+    private void shrink() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> {
+            boolean expired = entry.expiresAt - now <= 0;
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+
+        int target = maxSize - Math.max(1, maxSize / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry {
+        private final CachedUser user;
+        private final long expiresAt;
+
+        private Entry(CachedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA-слушатель {@link User}: вытесняет пользователя из {@link UserCache} при любом изменении.
+ * <p>
+ * Вытеснение выполняется сразу и повторно после завершения транзакции, чтобы параллельный
+ * запрос не успел закэшировать ещё не зафиксированное старое значение.
+ * UserCache берётся через ObjectProvider: слушатель создаётся вместе с EntityManagerFactory,
+ * раньше репозиториев, от которых зависит кэш.
+ */
+@Component
+public class UserCacheEvictionListener {
+
+    private final ObjectProvider<UserCache> userCache;
+
+    public UserCacheEvictionListener(ObjectProvider<UserCache> userCache) {
+        this.userCache = userCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        UserCache cache = userCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        cache.evict(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(user);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш уже проверенных JWT: ключ — SHA-256 от токена, значение — его claims.
+ * Запись живёт не дольше, чем exp самого токена, поэтому повторная проверка
+ * подписи для одного и того же токена выполняется только после вытеснения.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Token cache size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Возвращает claims из кэша или null, если токен не проверялся или его срок истёк.
+     */
+    public Claims get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims;
+    }
+
+    /**
+     * Сохраняет claims токена, подпись которого уже проверена.
+     * Токены без exp не кэшируются.
+     */
+    public void put(String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            shrink();
+        }
+        entries.put(digest(token), new Entry(claims, expiration.getTime()));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Имена и теги как у кэшей в Micrometer (cache.gets, cache.evictions, cache.size)
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, VerifiedTokenCache::getHitCount)
+            .tags("cache", "jwt-tokens", "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("cache.gets", this, VerifiedTokenCache::getMissCount)
+            .tags("cache", "jwt-tokens", "result", "miss")
+            .register(registry);
+        FunctionCounter.builder("cache.evictions", this, VerifiedTokenCache::getEvictionCount)
+            .tag("cache", "jwt-tokens")
+            .register(registry);
+        Gauge.builder("cache.size", this, VerifiedTokenCache::size)
+            .tag("cache", "jwt-tokens")
+            .register(registry);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Сначала удаляет истёкшие записи; если этого мало — освобождает
+     * десятую часть ёмкости, чтобы не чистить кэш на каждой вставке.
+     */
+    private void shrink() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().expiresAt <= now;
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+
+        int target = maxSize - Math.max(1, maxSize / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Entry {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private Entry(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
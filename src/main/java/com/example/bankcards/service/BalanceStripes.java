@@ -0,0 +1,185 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceStripe;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Полосы баланса «горячих» карт — карт, на которые приходится большая доля зачислений.
+ * <p>
+ * Зачисление на горячую карту — условный UPDATE случайной из N строк card_balance_stripe
+ * без блокировки строки card, поэтому параллельные зачисления расходятся по N строкам вместо
+ * очереди на одной. Баланс карты — card.balance плюс сумма полос: её учитывают выдача карт
+ * ({@code CardRepository.CARD_VIEW}) и списание, которое при нехватке card.balance
+ * переносит полосы в баланс под блокировкой карты. Фоновая задача {@link StripeFoldingJob}
+ * периодически делает то же для всех горячих карт.
+ * <p>
+ * Режим включается свойством {@code transfer.hot-cards.enabled}, а для карты — числом полос
+ * ({@link #configure}). Список горячих карт кэшируется в памяти: загружается при старте (на каждом
+ * узле и при выключенном свойстве — карты, настроенные раньше, не возвращаются к очереди на строке
+ * card), меняется после {@link #configure} и обновляется фоновой задачей. Устаревший список не
+ * нарушает корректность: зачисление в отсутствующую полосу не проходит и выполняется обычным путём.
+ */
+@Component
+public class BalanceStripes implements InitializingBean {
+
+    public static final int MAX_STRIPES = 64;
+
+    private final CardRepository cardRepository;
+    private final CardBalanceStripeRepository stripeRepository;
+    private final boolean enabled;
+
+    // Копия при записи: читается на каждом зачислении, меняется редко
+    private volatile Map<Long, Integer> hotCards = Map.of();
+
+    public BalanceStripes(CardRepository cardRepository, CardBalanceStripeRepository stripeRepository,
+                          @Value("${transfer.hot-cards.enabled:false}") boolean enabled) {
+        this.cardRepository = cardRepository;
+        this.stripeRepository = stripeRepository;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int stripesOf(Long cardId) {
+        return hotCards.getOrDefault(cardId, 0);
+    }
+
+    public Set<Long> getHotCardIds() {
+        return hotCards.keySet();
+    }
+
+    /**
+     * Зачисляет сумму в случайную полосу горячей активной карты.
+     *
+     * @return false, если карта не горячая, неактивна или не найдена — тогда зачисление
+     *         выполняется обычным путём, который и сообщает причину отказа
+     */
+    public boolean credit(Long cardId, Double amount) {
+        int stripes = stripesOf(cardId);
+        if (stripes == 0) {
+            return false;
+        }
+        return stripeRepository.creditIfActive(cardId, ThreadLocalRandom.current().nextInt(stripes), amount) == 1;
+    }
+
+    /**
+     * Переносит полосы уже заблокированных карт в card.balance (одним запросом на все карты).
+     * Карты без полос пропускаются без обращения к БД.
+     */
+    public void foldInto(Collection<Card> lockedCards) {
+        Map<Long, Card> striped = new HashMap<>();
+        for (Card card : lockedCards) {
+            if (card.getBalanceStripes() > 0) {
+                striped.put(card.getId(), card);
+            }
+        }
+        if (!striped.isEmpty()) {
+            fold(striped, stripeRepository.findAllByCardIdsForUpdate(striped.keySet()));
+        }
+    }
+
+    /**
+     * Переносит полосы одной карты в баланс; вызывается фоновой задачей.
+     */
+    @Transactional
+    public void foldCard(Long cardId) {
+        cardRepository.findByIdForUpdate(cardId).ifPresent(card -> foldInto(List.of(card)));
+    }
+
+    /**
+     * Задаёт число полос карты: 0 выключает режим. Накопленное в полосах переносится в баланс,
+     * лишние полосы удаляются, недостающие создаются с нулём.
+     */
+    @Transactional
+    public Card configure(Long cardId, int stripes) {
+        if (!enabled) {
+            throw new IllegalStateException("Hot card mode is disabled");
+        }
+        if (stripes < 0 || stripes > MAX_STRIPES) {
+            throw new IllegalArgumentException("Stripe count must be between 0 and " + MAX_STRIPES);
+        }
+        Card card = cardRepository.findByIdForUpdate(cardId)
+            .orElseThrow(() -> new RuntimeException("Card not found"));
+
+        List<CardBalanceStripe> existing = stripeRepository.findAllByCardIdsForUpdate(List.of(cardId));
+        fold(Map.of(cardId, card), existing);
+
+        Set<Integer> kept = new HashSet<>();
+        for (CardBalanceStripe stripe : existing) {
+            if (stripe.getStripe() < stripes) {
+                kept.add(stripe.getStripe());
+            } else {
+                stripeRepository.delete(stripe);
+            }
+        }
+        for (int i = 0; i < stripes; i++) {
+            if (!kept.contains(i)) {
+                stripeRepository.save(new CardBalanceStripe(cardId, i));
+            }
+        }
+        card.setBalanceStripes(stripes);
+        Card saved = cardRepository.save(card);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update(cardId, stripes);
+            }
+        });
+        return saved;
+    }
+
+    /**
+     * Перечитывает список горячих карт из БД.
+     */
+    public void refresh() {
+        Map<Long, Integer> loaded = new HashMap<>();
+        for (Object[] row : cardRepository.findHotCards()) {
+            loaded.put((Long) row[0], (Integer) row[1]);
+        }
+        hotCards = Map.copyOf(loaded);
+    }
+
+    private synchronized void update(Long cardId, int stripes) {
+        Map<Long, Integer> updated = new HashMap<>(hotCards);
+        if (stripes > 0) {
+            updated.put(cardId, stripes);
+        } else {
+            updated.remove(cardId);
+        }
+        hotCards = Map.copyOf(updated);
+    }
+
+    private static void fold(Map<Long, Card> cards, List<CardBalanceStripe> stripes) {
+        for (CardBalanceStripe stripe : stripes) {
+            if (stripe.getAmount() != 0) {
+                Card card = cards.get(stripe.getCardId());
+                card.setBalance(card.getBalance() + stripe.getAmount());
+                stripe.setAmount(0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkIssueReport;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.CardUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+/**
+ * Массовый выпуск карт из потока CSV (с заголовком) или NDJSON.
+ * <p>
+ * Тело читается построчно и режется на порции по {@code cards.bulk.chunk-size} строк. Порция
+ * проверяется и шифруется параллельно ({@link EncryptionService} потокобезопасен), пока
+ * предыдущая порция пишется в БД; запись — одна транзакция на порцию, id карт берутся пулами
+ * из card_seq, поэтому INSERT уходят JDBC-пакетами (hibernate.jdbc.batch_size).
+ * <p>
+ * Ошибочная строка не прерывает загрузку: она попадает в отчёт с номером строки, остальные
+ * строки порции записываются. Уже записанные порции не откатываются, если поток оборвался.
+ */
+@Service
+public class CardBulkService {
+
+    static final String[] COLUMNS = {"cardNumber", "owner", "expirationDate", "status", "balance", "userId"};
+    // status и balance необязательны: ACTIVE и 0
+    private static final List<String> REQUIRED_COLUMNS = List.of("cardNumber", "owner", "expirationDate", "userId");
+
+    private static final Pattern CARD_NUMBER = Pattern.compile("\\d{12,19}");
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final EncryptionService encryptionService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public CardBulkService(CardRepository cardRepository, UserRepository userRepository,
+                           EncryptionService encryptionService, ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${cards.bulk.chunk-size:1000}") int chunkSize,
+                           @Value("${cards.bulk.max-errors:1000}") int maxErrors) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.encryptionService = encryptionService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Читает определения карт из {@code in} (UTF-8) и создаёт карты. Поток не закрывается.
+     *
+     * @throws IllegalArgumentException если у CSV нет заголовка или в нём нет обязательной колонки
+     */
+    public BulkIssueReport issue(CardExportFormat format, InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowParser parser = format == CardExportFormat.CSV ? new CsvRowParser() : new NdjsonRowParser();
+        Upload upload = new Upload();
+
+        // Следующая порция готовится, пока текущая пишется в БД
+        CompletableFuture<PreparedChunk> pending = null;
+        List<RawRow> rows = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            RawRow row = parser.parse(lineNumber, line);
+            if (row == null) {
+                continue;
+            }
+            rows.add(row);
+            if (rows.size() == chunkSize) {
+                pending = submit(pending, rows, upload);
+                rows = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!rows.isEmpty()) {
+            pending = submit(pending, rows, upload);
+        }
+        if (pending != null) {
+            write(join(pending), upload);
+        }
+        return upload.report();
+    }
+
+    private CompletableFuture<PreparedChunk> submit(CompletableFuture<PreparedChunk> pending, List<RawRow> rows,
+                                                    Upload upload) {
+        CompletableFuture<PreparedChunk> next = CompletableFuture.supplyAsync(() -> prepare(rows));
+        if (pending != null) {
+            write(join(pending), upload);
+        }
+        return next;
+    }
+
+    /**
+     * Проверка строк и всё, что не требует БД: шифрование, blind index, последние 4 цифры.
+     */
+    private PreparedChunk prepare(List<RawRow> rows) {
+        PreparedChunk chunk = new PreparedChunk(rows.size());
+        for (RawRow row : rows) {
+            try {
+                chunk.rows.add(validate(row));
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add(new BulkIssueReport.LineError(row.line, e.getMessage()));
+            }
+        }
+        chunk.rows.parallelStream().forEach(row -> {
+            Card card = row.card;
+            card.setCardNumberHash(encryptionService.blindIndex(row.cardNumber));
+            card.setLast4(CardUtils.lastFourDigits(row.cardNumber));
+            card.setCardNumber(encryptionService.encrypt(row.cardNumber));
+        });
+        return chunk;
+    }
+
+    /**
+     * Запись порции одной транзакцией. Если её отверг уникальный индекс (карту с тем же номером
+     * создали параллельно), строки порции записываются по одной, чтобы найти виноватую.
+     */
+    private void write(PreparedChunk chunk, Upload upload) {
+        List<BulkIssueReport.LineError> errors = chunk.errors;
+        List<PreparedRow> candidates = new ArrayList<>(chunk.rows.size());
+
+        Set<Long> unknownUsers = new HashSet<>();
+        for (PreparedRow row : chunk.rows) {
+            if (!upload.knownUsers.contains(row.userId)) {
+                unknownUsers.add(row.userId);
+            }
+        }
+        if (!unknownUsers.isEmpty()) {
+            upload.knownUsers.addAll(userRepository.findExistingIds(unknownUsers));
+        }
+
+        Map<String, PreparedRow> byHash = new HashMap<>();
+        for (PreparedRow row : chunk.rows) {
+            if (!upload.knownUsers.contains(row.userId)) {
+                errors.add(new BulkIssueReport.LineError(row.line, "User not found"));
+            } else if (byHash.putIfAbsent(row.card.getCardNumberHash(), row) != null) {
+                errors.add(new BulkIssueReport.LineError(row.line, "Card number already exists"));
+            } else {
+                candidates.add(row);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            try {
+                Integer saved = transactionTemplate.execute(status -> {
+                    Set<String> existing = new HashSet<>(cardRepository.findExistingCardNumberHashes(byHash.keySet()));
+                    List<Card> cards = new ArrayList<>(candidates.size());
+                    for (PreparedRow row : candidates) {
+                        if (existing.contains(row.card.getCardNumberHash())) {
+                            errors.add(new BulkIssueReport.LineError(row.line, "Card number already exists"));
+                        } else {
+                            row.card.setUser(userRepository.getReferenceById(row.userId));
+                            cards.add(row.card);
+                        }
+                    }
+                    cardRepository.saveAll(cards);
+                    cardRepository.flush();
+                    return cards.size();
+                });
+                upload.created += saved;
+            } catch (DataIntegrityViolationException e) {
+                // Ошибки «уже существует» из отвергнутой транзакции найдутся заново построчно
+                errors.removeIf(error -> candidates.stream().anyMatch(row -> row.line == error.getLine()));
+                writeOneByOne(candidates, errors, upload);
+            }
+        }
+
+        upload.failed += errors.size();
+        errors.sort(Comparator.comparingLong(BulkIssueReport.LineError::getLine));
+        for (BulkIssueReport.LineError error : errors) {
+            if (upload.errors.size() < maxErrors) {
+                upload.errors.add(error);
+            }
+        }
+    }
+
+    private void writeOneByOne(List<PreparedRow> rows, List<BulkIssueReport.LineError> errors, Upload upload) {
+        for (PreparedRow row : rows) {
+            row.card.setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    cardRepository.save(row.card);
+                    cardRepository.flush();
+                });
+                upload.created++;
+            } catch (DataIntegrityViolationException e) {
+                errors.add(new BulkIssueReport.LineError(row.line,
+                    cardRepository.findByCardNumberHash(row.card.getCardNumberHash()).isPresent()
+                        ? "Card number already exists" : "Card could not be saved"));
+            }
+        }
+    }
+
+    private static PreparedRow validate(RawRow row) {
+        if (row.error != null) {
+            throw new IllegalArgumentException(row.error);
+        }
+
+        String cardNumber = CardUtils.normalizeCardNumber(required(row.cardNumber, "cardNumber"));
+        if (!CARD_NUMBER.matcher(cardNumber).matches()) {
+            throw new IllegalArgumentException("Invalid card number");
+        }
+        String owner = required(row.owner, "owner");
+
+        LocalDate expirationDate;
+        try {
+            expirationDate = LocalDate.parse(required(row.expirationDate, "expirationDate"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid expirationDate");
+        }
+
+        CardStatus status = CardStatus.ACTIVE;
+        if (row.status != null && !row.status.isBlank()) {
+            try {
+                status = CardStatus.valueOf(row.status.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid status");
+            }
+        }
+
+        double balance = 0.0;
+        if (row.balance != null && !row.balance.isBlank()) {
+            try {
+                balance = Double.parseDouble(row.balance.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid balance");
+            }
+            if (!(balance >= 0) || Double.isInfinite(balance)) {
+                throw new IllegalArgumentException("Balance must not be negative");
+            }
+        }
+
+        long userId;
+        try {
+            userId = Long.parseLong(required(row.userId, "userId").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid userId");
+        }
+
+        return new PreparedRow(row.line, cardNumber, userId,
+            new Card(null, owner.trim(), expirationDate, status, balance, null));
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static PreparedChunk join(CompletableFuture<PreparedChunk> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Строка входных данных как есть; error — строка не разобрана
+    private static final class RawRow {
+        final long line;
+        String cardNumber;
+        String owner;
+        String expirationDate;
+        String status;
+        String balance;
+        String userId;
+        String error;
+
+        RawRow(long line) {
+            this.line = line;
+        }
+    }
+
+    private static final class PreparedRow {
+        final long line;
+        final String cardNumber;
+        final long userId;
+        final Card card;
+
+        PreparedRow(long line, String cardNumber, long userId, Card card) {
+            this.line = line;
+            this.cardNumber = cardNumber;
+            this.userId = userId;
+            this.card = card;
+        }
+    }
+
+    private static final class PreparedChunk {
+        final List<PreparedRow> rows;
+        final List<BulkIssueReport.LineError> errors = new ArrayList<>();
+
+        PreparedChunk(int size) {
+            this.rows = new ArrayList<>(size);
+        }
+    }
+
+    // Состояние одной загрузки; меняется только в потоке запроса
+    private static final class Upload {
+        final Set<Long> knownUsers = new HashSet<>();
+        final List<BulkIssueReport.LineError> errors = new ArrayList<>();
+        long created;
+        long failed;
+
+        BulkIssueReport report() {
+            return new BulkIssueReport(created + failed, created, failed, errors, failed > errors.size());
+        }
+    }
+
+    private interface RowParser {
+        /**
+         * @return строка данных или null, если строка служебная (заголовок CSV)
+         */
+        RawRow parse(long line, String text);
+    }
+
+    private final class NdjsonRowParser implements RowParser {
+
+        @Override
+        public RawRow parse(long line, String text) {
+            RawRow row = new RawRow(line);
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                node = null;
+            }
+            if (node == null || !node.isObject()) {
+                row.error = "Malformed JSON line";
+                return row;
+            }
+            row.cardNumber = text(node, COLUMNS[0]);
+            row.owner = text(node, COLUMNS[1]);
+            row.expirationDate = text(node, COLUMNS[2]);
+            row.status = text(node, COLUMNS[3]);
+            row.balance = text(node, COLUMNS[4]);
+            row.userId = text(node, COLUMNS[5]);
+            return row;
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+
+    private static final class CsvRowParser implements RowParser {
+
+        // Позиция колонки COLUMNS[i] в заголовке или -1
+        private int[] positions;
+        private int width;
+
+        @Override
+        public RawRow parse(long line, String text) {
+            if (positions == null) {
+                readHeader(text);
+                return null;
+            }
+            RawRow row = new RawRow(line);
+            List<String> fields;
+            try {
+                fields = split(text);
+            } catch (IllegalArgumentException e) {
+                row.error = e.getMessage();
+                return row;
+            }
+            if (fields.size() != width) {
+                row.error = "Expected " + width + " fields, got " + fields.size();
+                return row;
+            }
+            row.cardNumber = field(fields, 0);
+            row.owner = field(fields, 1);
+            row.expirationDate = field(fields, 2);
+            row.status = field(fields, 3);
+            row.balance = field(fields, 4);
+            row.userId = field(fields, 5);
+            return row;
+        }
+
+        private void readHeader(String text) {
+            // BOM в начале файла из Excel — не часть имени колонки
+            List<String> header = split(text.startsWith("\uFEFF") ? text.substring(1) : text);
+            width = header.size();
+            positions = new int[COLUMNS.length];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                positions[i] = header.indexOf(COLUMNS[i]);
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!header.contains(column)) {
+                    throw new IllegalArgumentException("Missing CSV column: " + column);
+                }
+            }
+        }
+
+        private String field(List<String> fields, int column) {
+            return positions[column] < 0 ? null : fields.get(positions[column]);
+        }
+
+        // RFC 4180 в пределах одной строки: поле в кавычках может содержать запятые и удвоенные кавычки
+        private static List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c != '\r') {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
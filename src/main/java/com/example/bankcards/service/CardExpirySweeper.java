@@ -0,0 +1,100 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переводит активные карты с истёкшим сроком действия в {@code EXPIRED}.
+ * <p>
+ * Карты обрабатываются порциями по {@code cards.expiry.chunk-size}, каждая порция — отдельная
+ * короткая транзакция: выборка id с {@code FOR UPDATE SKIP LOCKED} и один UPDATE. Строки,
+ * занятые переводом или тем же обходом на другом узле, пропускаются без ожидания и достаются
+ * следующему проходу, поэтому задачу можно запускать на всех узлах одновременно.
+ */
+@Component
+@ConditionalOnProperty(name = "cards.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class CardExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(CardExpirySweeper.class);
+
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final DistributionSummary expiredPerRun;
+    private final Timer runTimer;
+
+    public CardExpirySweeper(CardRepository cardRepository, PlatformTransactionManager transactionManager,
+                             MeterRegistry registry, @Value("${cards.expiry.chunk-size:500}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("cards.expiry.chunk-size must be positive");
+        }
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.expiredPerRun = DistributionSummary.builder("bankcards.card.expiry.expired")
+            .description("Cards moved to EXPIRED per sweeper run")
+            .baseUnit("cards")
+            .register(registry);
+        this.runTimer = Timer.builder("bankcards.card.expiry.duration")
+            .description("Expiry sweeper run duration")
+            .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${cards.expiry.initial-delay:PT1M}", fixedDelayString = "${cards.expiry.interval:PT15M}")
+    public void run() {
+        try {
+            int expired = sweep(LocalDate.now());
+            if (expired > 0) {
+                log.info("Expired {} cards", expired);
+            }
+        } catch (RuntimeException e) {
+            // Уже обработанные порции закоммичены; остальное доделает следующий проход
+            log.warn("Card expiry sweep failed", e);
+        }
+    }
+
+    /**
+     * Один проход: порции берутся, пока очередная выборка заполнена целиком.
+     *
+     * @param today карты со сроком действия раньше этой даты считаются истёкшими
+     * @return сколько карт переведено в EXPIRED
+     */
+    public int sweep(LocalDate today) {
+        long start = System.nanoTime();
+        int total = 0;
+        try {
+            Pageable limit = PageRequest.of(0, chunkSize);
+            int expired;
+            do {
+                expired = transactionTemplate.execute(status -> expireChunk(today, limit));
+                total += expired;
+            } while (expired == chunkSize);
+        } finally {
+            expiredPerRun.record(total);
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return total;
+    }
+
+    // Выбранные строки заблокированы и ещё ACTIVE, поэтому UPDATE меняет их все
+    private int expireChunk(LocalDate today, Pageable limit) {
+        List<Long> ids = cardRepository.lockExpiredActiveIds(today, limit);
+        return ids.isEmpty() ? 0 : cardRepository.expireAll(ids);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.service;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Формат потоковой выгрузки и массовой загрузки карт.
+ */
+public enum CardExportFormat {
+    /**
+     * Один JSON-объект на строку.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE),
+    /**
+     * CSV с заголовком.
+     */
+    CSV("text/csv");
+
+    private final String contentType;
+
+    CardExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static CardExportFormat fromParam(String format) {
+        if (format != null) {
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) {
+                // ниже — единое сообщение для неизвестного формата
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + format);
+    }
+
+    /**
+     * Формат тела запроса по заголовку Content-Type (параметры вроде charset не учитываются).
+     */
+    public static CardExportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            try {
+                MediaType mediaType = MediaType.parseMediaType(contentType);
+                for (CardExportFormat format : values()) {
+                    if (mediaType.equalsTypeAndSubtype(MediaType.parseMediaType(format.contentType))) {
+                        return format;
+                    }
+                }
+            } catch (InvalidMediaTypeException ignored) {
+                // ниже — единое сообщение для неизвестного формата
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content type: " + contentType);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.repository.CardRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка всех карт.
+ * <p>
+ * Карты читаются серверным курсором по {@link CardRepository#STREAM_FETCH_SIZE} строк сразу в проекции
+ * {@link CardView} и пишутся в поток; после каждой порции ответ сбрасывается клиенту. Сущности не
+ * создаются, контекст персистентности не растёт, и память не зависит от размера таблицы.
+ */
+@Service
+public class CardExportService {
+
+    private static final String[] COLUMNS =
+        {"id", "owner", "maskedCardNumber", "expirationDate", "status", "balance", "userId"};
+
+    private final CardRepository cardRepository;
+    private final ObjectMapper objectMapper;
+
+    public CardExportService(CardRepository cardRepository, ObjectMapper objectMapper) {
+        this.cardRepository = cardRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Пишет все карты в {@code out} в заданном формате. Поток не закрывается.
+     *
+     * @return количество выгруженных карт
+     */
+    @Transactional(readOnly = true)
+    public long export(CardExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowWriter rows = format == CardExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        long count = 0;
+        try (Stream<CardView> cards = cardRepository.streamAllViews()) {
+            Iterator<CardView> iterator = cards.iterator();
+            while (iterator.hasNext()) {
+                rows.write(iterator.next());
+                if (++count % CardRepository.STREAM_FETCH_SIZE == 0) {
+                    rows.flush();
+                }
+            }
+        }
+        rows.flush();
+        return count;
+    }
+
+    private interface RowWriter {
+        void write(CardView card) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            // Один генератор на всю выгрузку; разделитель корневых значений — только наш перевод строки
+            this.json = objectMapper.getFactory().createGenerator(writer)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+                .setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(CardView card) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField(COLUMNS[0], card.getId());
+            json.writeStringField(COLUMNS[1], card.getOwner());
+            json.writeStringField(COLUMNS[2], card.getMaskedCardNumber());
+            json.writeStringField(COLUMNS[3], String.valueOf(card.getExpirationDate()));
+            json.writeStringField(COLUMNS[4], String.valueOf(card.getStatus()));
+            json.writeNumberField(COLUMNS[5], toDecimal(card.getBalance()));
+            json.writeNumberField(COLUMNS[6], card.getUserId());
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            json.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(CardView card) throws IOException {
+            writer.write(String.valueOf(card.getId()));
+            writer.write(',');
+            writer.write(escape(card.getOwner()));
+            writer.write(',');
+            writer.write(card.getMaskedCardNumber());
+            writer.write(',');
+            writer.write(String.valueOf(card.getExpirationDate()));
+            writer.write(',');
+            writer.write(String.valueOf(card.getStatus()));
+            writer.write(',');
+            writer.write(toDecimal(card.getBalance()).toPlainString());
+            writer.write(',');
+            writer.write(String.valueOf(card.getUserId()));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        // Табличные редакторы выполняют ячейку, начинающуюся с этих символов, как формулу
+        private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+        // RFC 4180: поле с запятой, кавычкой или переводом строки берётся в кавычки.
+        // Значение, похожее на формулу, предваряется апострофом и выводится как текст
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    // Баланс без экспоненциальной записи (1.0E7) и двоичных хвостов double
+    private static BigDecimal toDecimal(Double balance) {
+        return BigDecimal.valueOf(balance);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Метрики операций {@link CardService}: таймер {@value #OPERATIONS} с тегами operation и outcome.
+ * <p>
+ * Исход определяется по исключению сервиса (сервисы сообщают об ошибках RuntimeException
+ * с фиксированным текстом) или по пустому Optional в результате.
+ */
+@Component
+public class CardOperationMetrics {
+
+    static final String OPERATIONS = "bankcards.card.operations";
+    static final String BATCH_ITEMS = "bankcards.card.transfer.batch.items";
+
+    static final String SUCCESS = "success";
+    static final String INSUFFICIENT_BALANCE = "insufficient_balance";
+    static final String INACTIVE_CARD = "inactive_card";
+    static final String NOT_FOUND = "not_found";
+    static final String INVALID_REQUEST = "invalid_request";
+    static final String ACCESS_DENIED = "access_denied";
+    static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> batchItems = new ConcurrentHashMap<>();
+
+    public CardOperationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Выполняет операцию и записывает её длительность с исходом; исключение пробрасывается дальше.
+     */
+    public <T> T record(String operation, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            T result = action.get();
+            if (result instanceof Optional<?> optional && optional.isEmpty()) {
+                outcome = NOT_FOUND;
+            }
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            timer(operation, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Считает исход одного перевода из пакета (по сообщению в TransferResult).
+     */
+    public void countBatchItem(String failureMessage) {
+        String outcome = failureMessage == null ? SUCCESS : outcomeOf(failureMessage);
+        batchItems.computeIfAbsent(outcome, o -> Counter.builder(BATCH_ITEMS)
+            .tag("outcome", o)
+            .register(registry)).increment();
+    }
+
+    static String outcomeOf(RuntimeException e) {
+        if (e instanceof IllegalArgumentException) {
+            return INVALID_REQUEST;
+        }
+        return outcomeOf(e.getMessage());
+    }
+
+    static String outcomeOf(String message) {
+        if (message == null) {
+            return ERROR;
+        }
+        if (message.equals("Insufficient balance")) {
+            return INSUFFICIENT_BALANCE;
+        }
+        if (message.endsWith("is not active") || message.endsWith("already blocked")) {
+            return INACTIVE_CARD;
+        }
+        if (message.endsWith("not found")) {
+            return NOT_FOUND;
+        }
+        if (message.equals("Access denied")) {
+            return ACCESS_DENIED;
+        }
+        if (message.equals("Invalid transfer") || message.endsWith("must be positive")) {
+            return INVALID_REQUEST;
+        }
+        return ERROR;
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + '|' + outcome, key -> Timer.builder(OPERATIONS)
+            .description("Card service operations")
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .register(registry));
+    }
+}
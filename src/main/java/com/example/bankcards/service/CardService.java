@@ -1,150 +1,401 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardTransactionView;
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.ETagged;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.CardRepository;
-import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.security.CachedUser;
+import com.example.bankcards.security.UserCache;
+import com.example.bankcards.util.CardUtils;
+import com.example.bankcards.util.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 @Service
 public class CardService {
 
+    // Границы периода выписки по умолчанию
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final CardRepository cardRepository;
-    private final UserRepository userRepository;
+    private final CardTransactionRepository transactionRepository;
+    private final UserCache userCache;
     private final EncryptionService encryptionService;
+    private final TransferEngine transferEngine;
+    private final BalanceStripes balanceStripes;
+    private final CardOperationMetrics metrics;
+
+    @Value("${transfer.batch.max-size:1000}")
+    private int maxBatchSize = 1000;
 
     @Autowired
-    public CardService(CardRepository cardRepository, UserRepository userRepository, EncryptionService encryptionService) {
+    public CardService(CardRepository cardRepository, CardTransactionRepository transactionRepository,
+                       UserCache userCache, EncryptionService encryptionService, TransferEngine transferEngine,
+                       BalanceStripes balanceStripes, CardOperationMetrics metrics) {
         this.cardRepository = cardRepository;
-        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.userCache = userCache;
         this.encryptionService = encryptionService;
+        this.transferEngine = transferEngine;
+        this.balanceStripes = balanceStripes;
+        this.metrics = metrics;
+    }
+
+    // Каждая операция измеряется таймером bankcards.card.operations с тегами operation и outcome
+
+    @Transactional(readOnly = true)
+    public List<CardView> getAllCards() {
+        return metrics.record("all_cards", cardRepository::findAllViews);
     }
 
-    public List<Card> getAllCards() {
-        return cardRepository.findAll();
+    @Transactional(readOnly = true)
+    public Optional<CardView> getCardById(Long id) {
+        return metrics.record("get", () -> cardRepository.findViewById(id));
     }
 
-    public Optional<Card> getCardById(Long id) {
-        return cardRepository.findById(id);
+    /**
+     * ETag карты одним лёгким запросом — без загрузки и сериализации самой карты.
+     * Совпадает с {@link CardView#getETag()} той же карты.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getCardETag(Long id) {
+        return metrics.record("etag", () -> cardRepository.findVersionById(id).stream().findFirst()
+            .map(row -> CardView.eTag(id, ((Number) row[0]).longValue(), ((Number) row[1]).doubleValue())));
     }
 
     @Transactional
     public Card createCard(Card card) {
-        // Шифруем номер карты перед сохранением
-        if (card.getCardNumber() != null) {
-            card.setCardNumber(encryptionService.encrypt(card.getCardNumber()));
-        }
-        return cardRepository.save(card);
+        return metrics.record("create", () -> {
+            // Шифруем номер карты перед сохранением
+            if (card.getCardNumber() != null) {
+                card.setCardNumberHash(encryptionService.blindIndex(card.getCardNumber()));
+                card.setLast4(CardUtils.lastFourDigits(card.getCardNumber()));
+                card.setCardNumber(encryptionService.encrypt(card.getCardNumber()));
+            }
+            return cardRepository.save(card);
+        });
     }
 
     @Transactional
     public Card updateCard(Long id, Card updatedCard) {
-        return cardRepository.findById(id).map(card -> {
+        return metrics.record("update", () -> cardRepository.findById(id).map(card -> {
             if (updatedCard.getCardNumber() != null) {
+                card.setCardNumberHash(encryptionService.blindIndex(updatedCard.getCardNumber()));
+                card.setLast4(CardUtils.lastFourDigits(updatedCard.getCardNumber()));
                 card.setCardNumber(encryptionService.encrypt(updatedCard.getCardNumber()));
             }
             card.setOwner(updatedCard.getOwner());
             card.setExpirationDate(updatedCard.getExpirationDate());
             card.setStatus(updatedCard.getStatus());
+            // Заданный баланс — полный: накопленное в полосах горячей карты обнуляется
+            balanceStripes.foldInto(List.of(card));
             card.setBalance(updatedCard.getBalance());
             return cardRepository.save(card);
-        }).orElseThrow(() -> new RuntimeException("Card not found"));
+        }).orElseThrow(() -> new RuntimeException("Card not found")));
+    }
+
+    /**
+     * Поиск карты по полному номеру через blind index — без расшифровки таблицы.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Card> findByCardNumber(String cardNumber) {
+        return metrics.record("lookup", () -> {
+            if (cardNumber == null || cardNumber.isBlank()) {
+                throw new IllegalArgumentException("Card number is required");
+            }
+            return cardRepository.findByCardNumberHash(encryptionService.blindIndex(cardNumber));
+        });
     }
 
     public void deleteCard(Long id) {
-        cardRepository.deleteById(id);
+        metrics.record("delete", () -> cardRepository.deleteById(id));
     }
 
-    @Transactional
+    // Блокировки и порядок записи — в TransferEngine (режим задаётся transfer.mode)
     public void transferBetweenCards(Long fromCardId, Long toCardId, Double amount) {
-        Card fromCard = cardRepository.findById(fromCardId)
-            .orElseThrow(() -> new RuntimeException("Source card not found"));
-        Card toCard = cardRepository.findById(toCardId)
-            .orElseThrow(() -> new RuntimeException("Destination card not found"));
-
-        if (fromCard.getBalance() < amount) {
-            throw new RuntimeException("Insufficient balance");
-        }
+        metrics.record("transfer", () -> transferEngine.transfer(fromCardId, toCardId, amount));
+    }
 
-        if (fromCard.getStatus() != CardStatus.ACTIVE) {
-            throw new RuntimeException("Source card is not active");
-        }
+    /**
+     * Включает для карты режим горячей карты с заданным числом полос баланса (0 — выключает).
+     */
+    public CardView setBalanceStripes(Long id, int stripes) {
+        return metrics.record("stripes", () -> {
+            balanceStripes.configure(id, stripes);
+            return cardRepository.findViewById(id).orElseThrow(() -> new RuntimeException("Card not found"));
+        });
+    }
 
-        if (toCard.getStatus() != CardStatus.ACTIVE) {
-            throw new RuntimeException("Destination card is not active");
-        }
+    /**
+     * Пакет переводов пользователя: владение всеми картами проверяется одним запросом,
+     * балансы меняются в одной транзакции. Результат возвращается по каждому переводу.
+     */
+    public List<TransferResult> transferBatch(List<TransferRequest> transfers, String username) {
+        return metrics.record("transfer_batch", () -> {
+            if (transfers == null || transfers.isEmpty()) {
+                throw new IllegalArgumentException("Transfer batch is empty");
+            }
+            if (transfers.size() > maxBatchSize) {
+                throw new IllegalArgumentException("Transfer batch exceeds " + maxBatchSize + " items");
+            }
 
-        fromCard.setBalance(fromCard.getBalance() - amount);
-        toCard.setBalance(toCard.getBalance() + amount);
+            Set<Long> cardIds = new HashSet<>();
+            for (TransferRequest transfer : transfers) {
+                if (transfer != null) {
+                    cardIds.add(transfer.getFromCardId());
+                    cardIds.add(transfer.getToCardId());
+                }
+            }
+            cardIds.removeIf(Objects::isNull);
 
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
+            Set<Long> ownedCardIds = cardIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(cardRepository.findIdsOwnedBy(cardIds, requireUserId(username)));
+            List<TransferResult> results = transferEngine.transferBatch(transfers, ownedCardIds);
+            results.forEach(result -> metrics.countBatchItem(result.isSuccess() ? null : result.getMessage()));
+            return results;
+        });
     }
 
     @Transactional
     public void requestCardBlock(Long cardId) {
-        Card card = cardRepository.findById(cardId)
-            .orElseThrow(() -> new RuntimeException("Card not found"));
+        metrics.record("block", () -> {
+            Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new RuntimeException("Card not found"));
 
-        if (card.getStatus() == CardStatus.BLOCKED) {
-            throw new RuntimeException("Card is already blocked");
-        }
+            if (card.getStatus() == CardStatus.BLOCKED) {
+                throw new RuntimeException("Card is already blocked");
+            }
 
-        card.setStatus(CardStatus.BLOCKED);
-        cardRepository.save(card);
+            card.setStatus(CardStatus.BLOCKED);
+            cardRepository.save(card);
+        });
     }
 
-    public List<Card> filterCards(String owner, CardStatus status, int page, int size, String currentUsername) {
-        Pageable pageable = PageRequest.of(page, size);
+    // Списки карт — проекции CardView: один SELECT на страницу, без загрузки сущностей
+    @Transactional(readOnly = true)
+    public List<CardView> filterCards(String owner, CardStatus status, int page, int size, String currentUsername) {
+        return metrics.record("filter", () -> {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
 
-        // Проверяем роль пользователя
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        boolean isAdmin = auth.getAuthorities().stream()
-            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_ADMIN"));
+            if (isCurrentUserAdmin()) {
+                // ADMIN видит все карты
+                return cardRepository.findViewsByOwnerAndStatus(owner, status, pageable);
+            } else {
+                // USER видит только свои карты
+                return cardRepository.findViewsByUserIdAndStatus(requireUserId(currentUsername), status, pageable);
+            }
+        });
+    }
+
+    /**
+     * Keyset-вариант filterCards: страница начинается после карты из курсора,
+     * поэтому стоимость не зависит от глубины страницы.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CardView> filterCardsAfter(String owner, CardStatus status, String after, int size,
+                                                 String currentUsername) {
+        return metrics.record("filter", () -> {
+            validatePageSize(size);
+            long afterId = PageCursor.decode(after);
+            Pageable limit = PageRequest.of(0, size + 1);
+
+            List<CardView> cards;
+            if (isCurrentUserAdmin()) {
+                cards = cardRepository.findViewsByOwnerAndStatusAfter(owner, status, afterId, limit);
+            } else {
+                cards = cardRepository.findViewsByUserIdAndStatusAfter(requireUserId(currentUsername), status, afterId, limit);
+            }
+            return toCursorPage(cards, size);
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<CardView> getUserCards(String username, int page, int size) {
+        return metrics.record("user_cards", () -> {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+            return cardRepository.findViewsByUserId(requireUserId(username), pageable);
+        });
+    }
+
+    /**
+     * Keyset-вариант getUserCards.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CardView> getUserCardsAfter(String username, String after, int size) {
+        return metrics.record("user_cards", () -> {
+            validatePageSize(size);
+            List<CardView> cards = cardRepository.findViewsByUserIdAfter(
+                requireUserId(username), PageCursor.decode(after), PageRequest.of(0, size + 1));
+            return toCursorPage(cards, size);
+        });
+    }
+
+    /**
+     * ETag списка карт пользователя — сводка по всем его картам, не зависящая от страницы.
+     * Один агрегирующий запрос, включая полосы горячих карт.
+     */
+    @Transactional(readOnly = true)
+    public String getUserCardsETag(String username) {
+        return metrics.record("user_cards_etag", () -> {
+            Long userId = requireUserId(username);
+            Object[] summary = cardRepository.summarizeVersionsByUserId(userId).get(0);
+            StringBuilder etag = new StringBuilder("u").append(userId);
+            for (int i = 0; i < 3; i++) {
+                etag.append('-').append(((Number) summary[i]).longValue());
+            }
+            double stripes = ((Number) summary[3]).doubleValue();
+            if (stripes != 0) {
+                etag.append('-').append(Long.toHexString(Double.doubleToLongBits(stripes)));
+            }
+            return etag.toString();
+        });
+    }
 
-        if (isAdmin) {
-            // ADMIN видит все карты
-            return cardRepository.findByOwnerAndStatus(owner, status, pageable);
-        } else {
-            // USER видит только свои карты
-            User user = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-            return cardRepository.findByUserAndStatus(user, status, pageable);
+    /**
+     * Страница карт пользователя (keyset, если задан after) вместе с ETag списка. Обе выборки идут
+     * в одной транзакции REPEATABLE READ, поэтому ETag и тело — из одного снимка данных, в том числе
+     * на реплике. Если {@code unchanged} принимает ETag, страница не выбирается.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ETagged<Object> getUserCards(String username, int page, int size, String after,
+                                        Predicate<String> unchanged) {
+        String etag = getUserCardsETag(username);
+        if (unchanged.test(etag)) {
+            return ETagged.notModified(etag);
         }
+        if (after != null) {
+            return ETagged.of(etag, getUserCardsAfter(username, after, size));
+        }
+        return ETagged.of(etag, getUserCards(username, page, size));
     }
 
-    public List<Card> getUserCards(String username, int page, int size) {
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * Выписка по карте от новых движений к старым за период [from, to) с keyset-пагинацией:
+     * курсор хранит (created_at, id) последней строки, и каждая страница — один проход
+     * по индексу (card_id, created_at, id), независимо от глубины и размера журнала.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CardTransactionView> getTransactions(Long cardId, LocalDateTime from, LocalDateTime to,
+                                                           String after, int size) {
+        return metrics.record("transactions", () -> {
+            validatePageSize(size);
+            LocalDateTime start = from != null ? from : EARLIEST;
+            // Первая страница: всё, что строго раньше to (id > 0 у всех строк)
+            PageCursor.Position before = new PageCursor.Position(to != null ? to : LATEST, 0L);
+            if (after != null && !after.isEmpty()) {
+                PageCursor.Position position = PageCursor.decodePosition(after);
+                if (to == null || position.getCreatedAt().isBefore(to)) {
+                    before = position;
+                }
+            }
+            List<CardTransactionView> transactions = transactionRepository.findViewsByCardIdBefore(
+                cardId, start, before.getCreatedAt(), before.getId(), PageRequest.of(0, size + 1));
+            return toCursorPage(transactions, size,
+                transaction -> PageCursor.encode(transaction.getCreatedAt(), transaction.getId()));
+        });
+    }
 
-        Pageable pageable = PageRequest.of(page, size);
-        return cardRepository.findByUser(user, pageable);
+    // Размер keyset-страницы: запрос берёт size + 1 строк
+    private static void validatePageSize(int size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
     }
 
-    // Методы для проверки прав доступа (используются в @PreAuthorize)
-    public boolean isCardOwner(Long cardId, String username) {
-        Optional<Card> cardOpt = cardRepository.findById(cardId);
-        if (cardOpt.isEmpty()) {
-            return false;
+    private static CursorPage<CardView> toCursorPage(List<CardView> cards, int size) {
+        return toCursorPage(cards, size, card -> PageCursor.encode(card.getId()));
+    }
+
+    // Запрашиваем на одну запись больше: так без отдельного запроса ясно, есть ли следующая страница
+    private static <T> CursorPage<T> toCursorPage(List<T> items, int size, Function<T, String> cursor) {
+        if (items.size() <= size) {
+            return new CursorPage<>(items, null);
+        }
+        List<T> page = items.subList(0, size);
+        return new CursorPage<>(page, cursor.apply(page.get(size - 1)));
+    }
+
+    private Long requireUserId(String username) {
+        return findUserId(username).orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    // id текущего пользователя берётся из principal (claim токена); для другого имени
+    // или токена без claim — из UserCache
+    private Optional<Long> findUserId(String username) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof CachedUser user && user.getUsername().equals(username)) {
+            return Optional.of(user.getId());
         }
+        return userCache.findByUsername(username).map(CachedUser::getId);
+    }
 
-        User user = userRepository.findByUsername(username)
-            .orElse(null);
+    private static boolean isCurrentUserAdmin() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth.getAuthorities().stream()
+            .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_ADMIN"));
+    }
 
-        return user != null && cardOpt.get().getUser().getId().equals(user.getId());
+    // Методы для проверки прав доступа (используются в @PreAuthorize).
+    // Один COUNT-запрос по первичному ключу и user_id; id пользователя — из principal.
+    // Не readOnly: права проверяются по основной БД, реплика может ещё не знать о новой карте.
+    @Transactional
+    public boolean isCardOwner(Long cardId, String username) {
+        return metrics.record("ownership_check", () -> {
+            if (cardId == null) {
+                return false;
+            }
+            Optional<Long> userId = findUserId(username);
+            return userId.isPresent() && cardRepository.countOwnedBy(List.of(cardId), userId.get()) == 1;
+        });
     }
 
+    @Transactional
     public boolean areCardsOwnedByUser(Long fromCardId, Long toCardId, String username) {
-        return isCardOwner(fromCardId, username) && isCardOwner(toCardId, username);
+        if (fromCardId == null || toCardId == null) {
+            return false;
+        }
+        return areCardsOwnedByUser(List.of(fromCardId, toCardId), username);
+    }
+
+    @Transactional
+    public boolean areCardsOwnedByUser(Collection<Long> cardIds, String username) {
+        return metrics.record("ownership_check", () -> {
+            if (cardIds.isEmpty()) {
+                return false;
+            }
+            Optional<Long> userId = findUserId(username);
+            if (userId.isEmpty()) {
+                return false;
+            }
+            Set<Long> distinctIds = new HashSet<>(cardIds);
+            return cardRepository.countOwnedBy(distinctIds, userId.get()) == distinctIds.size();
+        });
     }
 }
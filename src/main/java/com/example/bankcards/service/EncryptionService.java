@@ -1,39 +1,293 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.util.CardUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * Шифрование номеров карт.
+ * <p>
+ * Формат шифртекста: {@code v1:} + Base64(IV[12] || ciphertext || tag[16]), режим AES/GCM.
+ * Значения без префикса версии считаются записанными старым путём (AES/ECB) и
+ * только расшифровываются — новые значения всегда пишутся в текущем формате.
+ * <p>
+ * Экземпляры {@link Cipher} и {@link Mac} не потокобезопасны. На платформенных потоках каждый поток
+ * получает свой экземпляр один раз и затем лишь переинициализирует его. При виртуальных потоках
+ * ({@code app.threads.virtual.enabled}) поток живёт один запрос, и экземпляр на поток создавался бы
+ * заново каждый раз; поэтому экземпляры берутся из общего пула и возвращаются в него. В пуле хранится
+ * не больше экземпляров, чем ядер: шифрование не блокируется, и одновременно его выполняют не больше
+ * потоков-носителей, чем ядер.
+ * <p>
+ * Ключ blind index ({@code encryption.blind-index-key}) задаётся в окружении и не короче 32 байт.
+ * После его смены индекс существующих карт нужно пересчитать: обнулить {@code card.card_number_hash}
+ * и повторить миграцию {@code 3-backfill} (удалить её строку из {@code databasechangelog}).
+ * <p>
+ * Длительность операций пишется в таймер {@code bankcards.crypto} с тегом operation.
+ */
 @Service
 public class EncryptionService {
 
     private static final String ALGORITHM = "AES";
     private static final String SECRET_KEY = "MySecretKey12345"; // В продакшене должен быть в конфигурации
+    private static final String BLIND_INDEX_ALGORITHM = "HmacSHA256";
+    private static final int MIN_BLIND_INDEX_KEY_LENGTH = 32;
+
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final String VERSION_PREFIX = "v1:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    private final SecretKeySpec secretKey =
+            new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    private final SecretKeySpec blindIndexKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Instances<Cipher> gcmCiphers;
+    private final Instances<Cipher> legacyCiphers;
+    private final Instances<Mac> blindIndexMacs;
+
+    private final Timer encryptTimer;
+    private final Timer decryptTimer;
+
+    /**
+     * Вне Spring-контекста (миграции): ключ передаётся явно, таймеры никуда не пишутся.
+     */
+    public static EncryptionService withoutMetrics(String blindIndexKey) {
+        return new EncryptionService(new CompositeMeterRegistry(), blindIndexKey);
+    }
+
+    public EncryptionService(MeterRegistry meterRegistry, String blindIndexKey) {
+        this(meterRegistry, blindIndexKey, false);
+    }
+
+    /**
+     * @param blindIndexKey HMAC-ключ blind index, не короче 32 байт
+     * @param pooled        экземпляры шифров из общего пула, а не по одному на поток
+     */
+    @Autowired
+    public EncryptionService(MeterRegistry meterRegistry,
+                             @Value("${encryption.blind-index-key}") String blindIndexKey,
+                             @Value("${app.threads.virtual.enabled:false}") boolean pooled) {
+        this.blindIndexKey = blindIndexKey(blindIndexKey);
+        this.encryptTimer = cryptoTimer(meterRegistry, "encrypt");
+        this.decryptTimer = cryptoTimer(meterRegistry, "decrypt");
+        this.gcmCiphers = new Instances<>(() -> newCipher(GCM_TRANSFORMATION), pooled);
+        this.legacyCiphers = new Instances<>(() -> newCipher(LEGACY_TRANSFORMATION), pooled);
+        this.blindIndexMacs = new Instances<>(this::newBlindIndexMac, pooled);
+    }
 
     public String encrypt(String plainText) {
+        long start = System.nanoTime();
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(SECRET_KEY.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            byte[] encryptedBytes = cipher.doFinal(plainText.getBytes());
-            return Base64.getEncoder().encodeToString(encryptedBytes);
+            return doEncrypt(plainText);
+        } finally {
+            encryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public String decrypt(String encryptedText) {
+        long start = System.nanoTime();
+        try {
+            return doDecrypt(encryptedText);
+        } finally {
+            decryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String doEncrypt(String plainText) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            secureRandom.nextBytes(iv);
+
+            Cipher cipher = gcmCiphers.acquire();
+            byte[] encryptedBytes;
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+                encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+            } finally {
+                gcmCiphers.release(cipher);
+            }
+
+            byte[] payload = ByteBuffer.allocate(IV_LENGTH + encryptedBytes.length)
+                    .put(iv)
+                    .put(encryptedBytes)
+                    .array();
+            return VERSION_PREFIX + Base64.getEncoder().encodeToString(payload);
         } catch (Exception e) {
             throw new RuntimeException("Error encrypting data", e);
         }
     }
 
-    public String decrypt(String encryptedText) {
+    private String doDecrypt(String encryptedText) {
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(SECRET_KEY.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
-            return new String(decryptedBytes);
+            if (!encryptedText.startsWith(VERSION_PREFIX)) {
+                return decryptLegacy(encryptedText);
+            }
+
+            byte[] payload = Base64.getDecoder().decode(encryptedText.substring(VERSION_PREFIX.length()));
+            Cipher cipher = gcmCiphers.acquire();
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH));
+                byte[] decryptedBytes = cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH);
+                return new String(decryptedBytes, StandardCharsets.UTF_8);
+            } finally {
+                gcmCiphers.release(cipher);
+            }
         } catch (Exception e) {
             throw new RuntimeException("Error decrypting data", e);
         }
     }
+
+    /**
+     * Детерминированный blind index номера карты: HMAC-SHA256 в hex (64 символа).
+     * Пробелы и дефисы игнорируются, поэтому "4111 1111 1111 1111" и "4111111111111111"
+     * дают одно и то же значение. По нему карта ищется в БД без расшифровки.
+     */
+    public String blindIndex(String cardNumber) {
+        String normalized = CardUtils.normalizeCardNumber(cardNumber);
+        Mac mac = blindIndexMacs.acquire();
+        try {
+            return HexFormat.of().formatHex(mac.doFinal(normalized.getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            blindIndexMacs.release(mac);
+        }
+    }
+
+    /**
+     * Шифрует набор номеров за один вызов, сохраняя порядок элементов.
+     */
+    public List<String> encryptAll(Collection<String> plainTexts, boolean parallel) {
+        return stream(plainTexts, parallel).map(this::encrypt).toList();
+    }
+
+    public List<String> encryptAll(Collection<String> plainTexts) {
+        return encryptAll(plainTexts, false);
+    }
+
+    /**
+     * Расшифровывает набор значений за один вызов, сохраняя порядок элементов.
+     */
+    public List<String> decryptAll(Collection<String> encryptedTexts, boolean parallel) {
+        return stream(encryptedTexts, parallel).map(this::decrypt).toList();
+    }
+
+    public List<String> decryptAll(Collection<String> encryptedTexts) {
+        return decryptAll(encryptedTexts, false);
+    }
+
+    private String decryptLegacy(String encryptedText) throws GeneralSecurityException {
+        Cipher cipher = legacyCiphers.acquire();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+            return new String(decryptedBytes, StandardCharsets.UTF_8);
+        } finally {
+            legacyCiphers.release(cipher);
+        }
+    }
+
+    private static Stream<String> stream(Collection<String> values, boolean parallel) {
+        return parallel ? values.parallelStream() : values.stream();
+    }
+
+    private static Timer cryptoTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("bankcards.crypto")
+                .description("Card number encryption")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static SecretKeySpec blindIndexKey(String key) {
+        if (key == null || key.getBytes(StandardCharsets.UTF_8).length < MIN_BLIND_INDEX_KEY_LENGTH) {
+            throw new IllegalStateException("encryption.blind-index-key must be set and at least "
+                    + MIN_BLIND_INDEX_KEY_LENGTH + " bytes long");
+        }
+        return new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), BLIND_INDEX_ALGORITHM);
+    }
+
+    private Mac newBlindIndexMac() {
+        try {
+            Mac mac = Mac.getInstance(BLIND_INDEX_ALGORITHM);
+            mac.init(blindIndexKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Mac " + BLIND_INDEX_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher " + transformation + " is not available", e);
+        }
+    }
+
+    /**
+     * Экземпляры одного вида: по одному на поток либо из общего пула. Лишние экземпляры, созданные
+     * в пик, при возврате в заполненный пул отбрасываются.
+     */
+    static final class Instances<T> {
+
+        private final Supplier<T> factory;
+        private final ThreadLocal<T> perThread;
+        private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+        private final int maxIdle = Runtime.getRuntime().availableProcessors();
+
+        Instances(Supplier<T> factory, boolean pooled) {
+            this.factory = factory;
+            this.perThread = pooled ? null : ThreadLocal.withInitial(factory);
+        }
+
+        T acquire() {
+            if (perThread != null) {
+                return perThread.get();
+            }
+            T instance = idle.poll();
+            if (instance == null) {
+                return factory.get();
+            }
+            idleCount.decrementAndGet();
+            return instance;
+        }
+
+        void release(T instance) {
+            if (perThread != null) {
+                return;
+            }
+            if (idleCount.incrementAndGet() <= maxIdle) {
+                idle.offer(instance);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+
+        int idleCount() {
+            return idleCount.get();
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.bankcards.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Периодически обновляет список горячих карт и переносит их полосы в card.balance.
+ * Каждая карта — отдельная короткая транзакция, чтобы не держать блокировки нескольких карт сразу.
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.hot-cards.enabled", havingValue = "true")
+public class StripeFoldingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeFoldingJob.class);
+
+    private final BalanceStripes balanceStripes;
+
+    public StripeFoldingJob(BalanceStripes balanceStripes) {
+        this.balanceStripes = balanceStripes;
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.hot-cards.fold-interval:PT5S}")
+    public void foldAll() {
+        balanceStripes.refresh();
+        for (Long cardId : balanceStripes.getHotCardIds()) {
+            try {
+                balanceStripes.foldCard(cardId);
+            } catch (RuntimeException e) {
+                // Следующий проход повторит перенос; полосы при этом по-прежнему учитываются в балансе
+                log.warn("Failed to fold balance stripes of card {}", cardId, e);
+            }
+        }
+    }
+}
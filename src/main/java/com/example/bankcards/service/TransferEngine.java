@@ -0,0 +1,315 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Применяет переводы между картами так, чтобы параллельные переводы с одной карты
+ * не могли увести её баланс в минус.
+ * <p>
+ * Обе реализации затрагивают строки карт в порядке возрастания id, поэтому встречные
+ * переводы A→B и B→A не могут взаимно заблокироваться.
+ * <p>
+ * Каждый успешный перевод в той же транзакции добавляет в журнал card_transaction строку
+ * списания и строку зачисления; id строк выдаются пулами, поэтому вставки идут JDBC-пакетами.
+ * <p>
+ * Зачисление на горячую карту ({@link BalanceStripes}) уходит в одну из её полос без блокировки
+ * строки карты; списание с горячей карты при нехватке card.balance сначала переносит в него полосы.
+ * Полосы карты в порядке блокировок стоят сразу за её строкой: их переносят, пока не заблокирована
+ * ни одна карта с большим id. Иначе списание с горячей карты X на карту Y > X (держит Y, ждёт полосу X)
+ * и зачисление с Y на X (держит полосу X, ждёт Y) блокируют друг друга.
+ */
+@Component
+public class TransferEngine {
+
+    private final CardRepository cardRepository;
+    private final CardTransactionRepository transactionRepository;
+    private final BalanceStripes balanceStripes;
+    private final TransferMode mode;
+
+    public TransferEngine(CardRepository cardRepository, CardTransactionRepository transactionRepository,
+                          BalanceStripes balanceStripes,
+                          @Value("${transfer.mode:PESSIMISTIC_LOCK}") TransferMode mode) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceStripes = balanceStripes;
+        this.mode = mode;
+    }
+
+    public TransferMode getMode() {
+        return mode;
+    }
+
+    @Transactional
+    public void transfer(Long fromCardId, Long toCardId, Double amount) {
+        if (mode == TransferMode.CONDITIONAL_UPDATE) {
+            transferWithConditionalUpdate(fromCardId, toCardId, amount);
+        } else {
+            transferWithLocks(fromCardId, toCardId, amount);
+        }
+    }
+
+    /**
+     * Блокирует обе карты (меньший id первым), проверяет баланс и статусы и записывает результат.
+     * Горячая карта-получатель не блокируется — вместо этого блокируется одна её полоса.
+     */
+    @Transactional
+    public void transferWithLocks(Long fromCardId, Long toCardId, Double amount) {
+        validateAmount(amount);
+
+        if (!fromCardId.equals(toCardId) && balanceStripes.stripesOf(toCardId) > 0
+                && transferToHotCard(fromCardId, toCardId, amount)) {
+            transactionRepository.saveAll(ledgerEntries(fromCardId, toCardId, amount, LocalDateTime.now()));
+            return;
+        }
+
+        Card fromCard;
+        Card toCard;
+        if (fromCardId <= toCardId) {
+            fromCard = lockSource(fromCardId);
+            foldIfShort(fromCard, amount);
+            toCard = lockDestination(toCardId);
+        } else {
+            toCard = lockDestination(toCardId);
+            fromCard = lockSource(fromCardId);
+            foldIfShort(fromCard, amount);
+        }
+
+        applyTransfer(fromCard, toCard, amount);
+
+        cardRepository.save(fromCard);
+        cardRepository.save(toCard);
+        transactionRepository.saveAll(ledgerEntries(fromCardId, toCardId, amount, LocalDateTime.now()));
+    }
+
+    /**
+     * Списание и зачисление — два условных UPDATE без чтения карт.
+     * Карта-отправитель блокируется и читается только если списание не прошло: чтобы учесть
+     * полосы горячей карты или вернуть понятную причину; исключение откатывает уже применённую
+     * половину перевода.
+     */
+    @Transactional
+    public void transferWithConditionalUpdate(Long fromCardId, Long toCardId, Double amount) {
+        validateAmount(amount);
+
+        if (fromCardId <= toCardId) {
+            debit(fromCardId, amount);
+            credit(toCardId, amount);
+        } else {
+            credit(toCardId, amount);
+            debit(fromCardId, amount);
+        }
+        transactionRepository.saveAll(ledgerEntries(fromCardId, toCardId, amount, LocalDateTime.now()));
+    }
+
+    /**
+     * Пакет переводов в одной транзакции.
+     * <p>
+     * Затронутые карты блокируются по возрастанию id одним запросом; если среди отправителей
+     * есть горячие карты — запросом на каждый отрезок до очередной горячей карты, полосы которой
+     * переносятся в баланс сразу после её блокировки (см. порядок блокировок в описании класса).
+     * Затем переводы применяются в памяти по порядку с теми же проверками, что и одиночный перевод.
+     * Неудачный перевод не меняет балансы и не прерывает пакет. Изменённые карты
+     * записываются при коммите пакетными UPDATE (hibernate.jdbc.batch_size).
+     *
+     * @param ownedCardIds карты, которыми разрешено оперировать; остальные дают отказ в доступе
+     */
+    @Transactional
+    public List<TransferResult> transferBatch(List<TransferRequest> transfers, Set<Long> ownedCardIds) {
+        Set<Long> hotSources = new HashSet<>();
+        for (TransferRequest transfer : transfers) {
+            if (transfer != null && ownedCardIds.contains(transfer.getFromCardId())
+                    && balanceStripes.stripesOf(transfer.getFromCardId()) > 0) {
+                hotSources.add(transfer.getFromCardId());
+            }
+        }
+        Map<Long, Card> cards = lockForBatch(ownedCardIds, hotSources);
+
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<CardTransaction> ledger = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            if (transfer == null || transfer.getFromCardId() == null || transfer.getToCardId() == null) {
+                results.add(TransferResult.failure(i, "Invalid transfer"));
+                continue;
+            }
+            if (!ownedCardIds.contains(transfer.getFromCardId()) || !ownedCardIds.contains(transfer.getToCardId())) {
+                results.add(TransferResult.failure(i, "Access denied"));
+                continue;
+            }
+            try {
+                validateAmount(transfer.getAmount());
+                Card fromCard = cards.get(transfer.getFromCardId());
+                if (fromCard == null) {
+                    throw new RuntimeException("Source card not found");
+                }
+                Card toCard = cards.get(transfer.getToCardId());
+                if (toCard == null) {
+                    throw new RuntimeException("Destination card not found");
+                }
+                applyTransfer(fromCard, toCard, transfer.getAmount());
+                ledger.addAll(ledgerEntries(fromCard.getId(), toCard.getId(), transfer.getAmount(), now));
+                results.add(TransferResult.success(i));
+            } catch (RuntimeException e) {
+                results.add(TransferResult.failure(i, e.getMessage()));
+            }
+        }
+        transactionRepository.saveAll(ledger);
+        return results;
+    }
+
+    /**
+     * Блокирует карты по возрастанию id отрезками, каждый из которых кончается горячей картой;
+     * её полосы переносятся до блокировки следующего отрезка.
+     */
+    private Map<Long, Card> lockForBatch(Set<Long> cardIds, Set<Long> hotSources) {
+        Map<Long, Card> cards = new HashMap<>();
+        List<Long> ids = new ArrayList<>(cardIds);
+        Collections.sort(ids);
+        int start = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (!hotSources.contains(id) && i < ids.size() - 1) {
+                continue;
+            }
+            for (Card card : cardRepository.findAllByIdForUpdate(ids.subList(start, i + 1))) {
+                cards.put(card.getId(), card);
+            }
+            Card hot = cards.get(id);
+            if (hotSources.contains(id) && hot != null) {
+                balanceStripes.foldInto(List.of(hot));
+            }
+            start = i + 1;
+        }
+        return cards;
+    }
+
+    /**
+     * Перевод на горячую карту: блокируется только карта-отправитель, сумма зачисляется в полосу.
+     * Строки затрагиваются в том же порядке id, что и при обычном переводе.
+     *
+     * @return false, если зачислить в полосу не удалось (карта уже не горячая, неактивна или
+     *         не найдена); отправитель при этом не изменён, и перевод выполняется обычным путём
+     */
+    private boolean transferToHotCard(Long fromCardId, Long toCardId, Double amount) {
+        Card fromCard;
+        if (fromCardId < toCardId) {
+            fromCard = lockSource(fromCardId);
+            foldIfShort(fromCard, amount);
+            checkSource(fromCard, amount);
+            if (!balanceStripes.credit(toCardId, amount)) {
+                return false;
+            }
+        } else {
+            if (!balanceStripes.credit(toCardId, amount)) {
+                return false;
+            }
+            fromCard = lockSource(fromCardId);
+            foldIfShort(fromCard, amount);
+            checkSource(fromCard, amount);
+        }
+        fromCard.setBalance(fromCard.getBalance() - amount);
+        cardRepository.save(fromCard);
+        return true;
+    }
+
+    /**
+     * Проверки перевода и изменение балансов уже загруженных карт.
+     */
+    private void applyTransfer(Card fromCard, Card toCard, Double amount) {
+        checkSource(fromCard, amount);
+
+        if (toCard.getStatus() != CardStatus.ACTIVE) {
+            throw new RuntimeException("Destination card is not active");
+        }
+
+        fromCard.setBalance(fromCard.getBalance() - amount);
+        toCard.setBalance(toCard.getBalance() + amount);
+    }
+
+    // Полосы горячей карты переносятся в баланс только когда без них не хватает. Вызывается сразу
+    // после блокировки отправителя, до блокировки карт с большим id
+    private void foldIfShort(Card fromCard, Double amount) {
+        if (fromCard.getBalance() < amount) {
+            balanceStripes.foldInto(List.of(fromCard));
+        }
+    }
+
+    // Баланс и статус заблокированной карты-отправителя. Полосы здесь не переносятся: в пакете
+    // уже могут быть заблокированы карты с большим id. Карта, ставшая горячей после чтения списка
+    // горячих карт, в пакете считается без полос, пока их не перенесёт StripeFoldingJob
+    private void checkSource(Card fromCard, Double amount) {
+        if (fromCard.getBalance() < amount) {
+            throw new RuntimeException("Insufficient balance");
+        }
+
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            throw new RuntimeException("Source card is not active");
+        }
+    }
+
+    private static List<CardTransaction> ledgerEntries(Long fromCardId, Long toCardId, Double amount,
+                                                       LocalDateTime createdAt) {
+        return List.of(CardTransaction.debit(fromCardId, toCardId, amount, createdAt),
+            CardTransaction.credit(toCardId, fromCardId, amount, createdAt));
+    }
+
+    private Card lockSource(Long cardId) {
+        return cardRepository.findByIdForUpdate(cardId)
+            .orElseThrow(() -> new RuntimeException("Source card not found"));
+    }
+
+    private Card lockDestination(Long cardId) {
+        return cardRepository.findByIdForUpdate(cardId)
+            .orElseThrow(() -> new RuntimeException("Destination card not found"));
+    }
+
+    private void debit(Long cardId, Double amount) {
+        if (cardRepository.debitIfSufficient(cardId, amount) == 1) {
+            return;
+        }
+        // Не прошло: блокируем карту, чтобы учесть полосы горячей карты или назвать причину отказа
+        Card card = lockSource(cardId);
+        foldIfShort(card, amount);
+        checkSource(card, amount);
+        card.setBalance(card.getBalance() - amount);
+        cardRepository.save(card);
+    }
+
+    private void credit(Long cardId, Double amount) {
+        if (balanceStripes.credit(cardId, amount)) {
+            return;
+        }
+        if (cardRepository.creditIfActive(cardId, amount) == 1) {
+            return;
+        }
+        if (cardRepository.existsById(cardId)) {
+            throw new RuntimeException("Destination card is not active");
+        }
+        throw new RuntimeException("Destination card not found");
+    }
+
+    private static void validateAmount(Double amount) {
+        if (amount == null || amount <= 0) {
+            throw new RuntimeException("Transfer amount must be positive");
+        }
+    }
+}
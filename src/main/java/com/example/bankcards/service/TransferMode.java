@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+/**
+ * Способ применения перевода к балансам карт.
+ */
+public enum TransferMode {
+    /**
+     * SELECT ... FOR UPDATE обеих карт в порядке возрастания id, затем проверка и запись.
+     */
+    PESSIMISTIC_LOCK,
+    /**
+     * Условные UPDATE без предварительного чтения: списание проходит только при
+     * достаточном балансе и статусе ACTIVE.
+     */
+    CONDITIONAL_UPDATE
+}
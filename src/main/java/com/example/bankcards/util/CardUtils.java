@@ -1,7 +1,36 @@
 package com.example.bankcards.util;
 
+import java.util.regex.Pattern;
+
 public class CardUtils {
 
+    private static final Pattern CARD_NUMBER_SEPARATORS = Pattern.compile("[\\s-]");
+
+    /**
+     * Приводит номер карты к каноническому виду: убирает пробелы и дефисы.
+     * @param cardNumber Номер карты в произвольном формате.
+     * @return Номер карты без разделителей.
+     */
+    public static String normalizeCardNumber(String cardNumber) {
+        if (cardNumber == null) {
+            throw new IllegalArgumentException("Некорректный номер карты");
+        }
+        return CARD_NUMBER_SEPARATORS.matcher(cardNumber).replaceAll("");
+    }
+
+    /**
+     * Возвращает последние 4 цифры номера карты (хранятся открыто для маскирования).
+     * @param cardNumber Полный номер карты.
+     * @return Последние 4 цифры.
+     */
+    public static String lastFourDigits(String cardNumber) {
+        String normalized = normalizeCardNumber(cardNumber);
+        if (normalized.length() < 4) {
+            throw new IllegalArgumentException("Некорректный номер карты");
+        }
+        return normalized.substring(normalized.length() - 4);
+    }
+
     /**
      * Маскирует номер карты, оставляя только последние 4 цифры.
      * @param cardNumber Полный номер карты.
@@ -13,4 +42,16 @@ public class CardUtils {
         }
         return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
     }
+
+    /**
+     * Маскированный номер по сохранённым последним 4 цифрам (без расшифровки номера).
+     * @param last4 Последние 4 цифры или null, если они ещё не заполнены.
+     * @return Маскированный номер карты.
+     */
+    public static String maskLast4(String last4) {
+        if (last4 == null) {
+            return "****";
+        }
+        return "**** **** **** " + last4;
+    }
 }
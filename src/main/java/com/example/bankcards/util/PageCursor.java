@@ -0,0 +1,94 @@
+package com.example.bankcards.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class PageCursor {
+
+    private static final String VERSION_PREFIX = "v1:";
+    private static final String TIME_PREFIX = "t1:";
+
+    /**
+     * Кодирует id последнего элемента страницы в непрозрачный курсор.
+     * @param lastId id последнего возвращённого элемента.
+     * @return Курсор для параметра after.
+     */
+    public static String encode(long lastId) {
+        byte[] raw = (VERSION_PREFIX + lastId).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Декодирует курсор. Пустой курсор означает первую страницу.
+     * @param cursor Значение параметра after.
+     * @return id, после которого начинается следующая страница.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(VERSION_PREFIX)) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+            return Long.parseLong(raw.substring(VERSION_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+    }
+
+    /**
+     * Кодирует позицию последнего элемента страницы, упорядоченной по времени и id.
+     * @param createdAt время последнего возвращённого элемента.
+     * @param lastId id последнего возвращённого элемента.
+     * @return Курсор для параметра after.
+     */
+    public static String encode(LocalDateTime createdAt, long lastId) {
+        byte[] raw = (TIME_PREFIX + createdAt + "/" + lastId).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Декодирует курсор, выданный {@link #encode(LocalDateTime, long)}.
+     * @param cursor Значение параметра after (не пустое).
+     * @return Позиция, после которой начинается следующая страница.
+     */
+    public static Position decodePosition(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = raw.lastIndexOf('/');
+            if (!raw.startsWith(TIME_PREFIX) || separator < 0) {
+                throw new IllegalArgumentException("Некорректный курсор");
+            }
+            return new Position(LocalDateTime.parse(raw.substring(TIME_PREFIX.length(), separator)),
+                Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный курсор", e);
+        }
+    }
+
+    /**
+     * Позиция в выборке, упорядоченной по (createdAt, id).
+     */
+    public static class Position {
+
+        private final LocalDateTime createdAt;
+        private final long id;
+
+        public Position(LocalDateTime createdAt, long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+}
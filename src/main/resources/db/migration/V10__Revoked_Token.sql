@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset bankcards:10
+-- Отозванные JWT (claim jti) до истечения их срока; истёкшие строки удаляет TokenRevocationList
+CREATE TABLE revoked_token (
+    jti VARCHAR(64) PRIMARY KEY,
+    expires_at TIMESTAMP(6) NOT NULL,
+    revoked_at TIMESTAMP(6) NOT NULL
+);
+
+-- Догрузка отзывов других узлов (revoked_at >= ?) и удаление истёкших (expires_at <= ?)
+CREATE INDEX idx_revoked_token_revoked_at ON revoked_token(revoked_at);
+CREATE INDEX idx_revoked_token_expires_at ON revoked_token(expires_at);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset bankcards:2
+-- Blind index: HMAC-SHA256 от номера карты для поиска без расшифровки
+ALTER TABLE card ADD COLUMN card_number_hash VARCHAR(64);
+
+-- Уникальный B-tree индекс: поиск по полному номеру — одна проба индекса
+CREATE UNIQUE INDEX idx_card_number_hash ON card(card_number_hash);
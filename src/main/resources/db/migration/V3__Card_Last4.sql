@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset bankcards:3
+-- Последние 4 цифры номера в открытом виде: маскирование без расшифровки
+ALTER TABLE card ADD COLUMN last4 VARCHAR(4);
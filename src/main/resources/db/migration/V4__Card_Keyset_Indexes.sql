@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset bankcards:4
+-- Составные индексы под keyset-пагинацию: WHERE <фильтр> AND id > :after ORDER BY id LIMIT :size
+CREATE INDEX idx_card_user_id_id ON card(user_id, id);
+CREATE INDEX idx_card_user_status_id ON card(user_id, status, id);
+CREATE INDEX idx_card_owner_status_id ON card(owner, status, id);
+
+--changeset bankcards:4-drop-user-id-index dbms:postgresql
+-- Покрыт префиксом idx_card_user_id_id
+DROP INDEX idx_card_user_id;
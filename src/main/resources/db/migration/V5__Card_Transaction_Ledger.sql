@@ -0,0 +1,20 @@
+--liquibase formatted sql
+
+--changeset bankcards:5
+-- Журнал движений по картам: на каждый перевод — строка списания и строка зачисления.
+-- Строки только добавляются; удаляются вместе с картой.
+CREATE TABLE card_transaction (
+    id BIGINT PRIMARY KEY,
+    card_id BIGINT NOT NULL,
+    counterparty_card_id BIGINT NOT NULL,
+    type VARCHAR(10) NOT NULL,
+    amount NUMERIC(15, 2) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    FOREIGN KEY (card_id) REFERENCES card(id) ON DELETE CASCADE
+);
+
+-- id выдаются пулами по 50 (pooled-оптимизатор Hibernate), чтобы вставки шли JDBC-пакетами
+CREATE SEQUENCE card_transaction_seq START WITH 1 INCREMENT BY 50;
+
+-- Выписка: WHERE card_id = ? AND created_at в диапазоне, курсор (created_at, id) — один проход по индексу
+CREATE INDEX idx_card_transaction_card_created_id ON card_transaction(card_id, created_at, id);
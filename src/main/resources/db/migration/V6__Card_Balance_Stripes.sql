@@ -0,0 +1,18 @@
+--liquibase formatted sql
+
+--changeset bankcards:6
+-- «Горячие» карты: зачисления распределяются по N строкам-полосам вместо одной строки card,
+-- фоновая задача периодически переносит суммы полос в card.balance
+ALTER TABLE card ADD COLUMN balance_stripes INT NOT NULL DEFAULT 0;
+
+CREATE TABLE card_balance_stripe (
+    card_id BIGINT NOT NULL,
+    stripe INT NOT NULL,
+    amount NUMERIC(15, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (card_id, stripe),
+    FOREIGN KEY (card_id) REFERENCES card(id) ON DELETE CASCADE
+);
+
+--changeset bankcards:6-hot-card-index dbms:postgresql
+-- Список горячих карт для фоновой задачи без просмотра всей таблицы
+CREATE INDEX idx_card_hot ON card(id) WHERE balance_stripes > 0;
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset bankcards:7
+-- id карт выдаются пулами по 50 (pooled-оптимизатор Hibernate): с IDENTITY-ключом Hibernate
+-- вставляет карты по одной, с последовательностью — JDBC-пакетами (массовый выпуск карт)
+CREATE SEQUENCE card_seq START WITH 1 INCREMENT BY 50;
+
+--changeset bankcards:7-card-seq dbms:postgresql
+-- pooled считает значение последовательности верхней границей пула: следующий пул начнётся с max(id) + 1
+SELECT setval('card_seq', COALESCE((SELECT MAX(id) FROM card), 0) + 50, false);
+-- INSERT без id (скрипты, ручные правки) берут значение из той же последовательности и не пересекаются с пулами
+ALTER TABLE card ALTER COLUMN id SET DEFAULT nextval('card_seq');
+DROP SEQUENCE card_id_seq;
@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+--changeset bankcards:8
+-- Версия строки карты (@Version): растёт при каждом изменении, из неё строятся ETag ответов.
+-- Колонка не индексируется: она меняется каждым переводом, и индекс по ней лишил бы
+-- эти UPDATE HOT-обновлений в PostgreSQL.
+ALTER TABLE card ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
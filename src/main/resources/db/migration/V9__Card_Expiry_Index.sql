@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset bankcards:9-card-expiry-index dbms:postgresql
+-- Поиск просроченных активных карт для CardExpirySweeper: в индексе только ACTIVE-карты,
+-- поэтому он не растёт с числом заблокированных и уже истёкших
+CREATE INDEX idx_card_active_expiration ON card(expiration_date, id) WHERE status = 'ACTIVE';
@@ -0,0 +1,61 @@
+package com.example.bankcards;
+
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.service.CardService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testPrometheusEndpointExposesHistograms() throws Exception {
+        cardService.getCardById(-1L);
+
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, bearer("admin")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "bankcards_card_operations_seconds_bucket{application=\"bankcards\",operation=\"get\",outcome=\"not_found\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket")))
+                .andExpect(content().string(containsString("cache_gets_total{application=\"bankcards\",cache=\"users\"")));
+    }
+
+    @Test
+    void testMetricsOnApplicationPortRequireAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, bearer("user1")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    private String bearer(String username) {
+        return "Bearer " + jwtUtil.generateToken(userRepository.findByUsername(username).orElseThrow());
+    }
+}
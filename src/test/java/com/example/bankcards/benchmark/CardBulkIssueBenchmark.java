@@ -0,0 +1,82 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.BulkIssueReport;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardBulkService;
+import com.example.bankcards.service.CardExportFormat;
+import com.example.bankcards.service.CardService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Выпуск карт по одной ({@link CardService#createCard}) против {@link CardBulkService} на H2.
+ * <p>
+ * Не входит в обычный прогон тестов; запуск: {@code mvn test -Dtest=CardBulkIssueBenchmark -Dbulk.cards=100000}
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBulkIssueBenchmark {
+
+    private static final int SINGLE_CARDS = 2_000;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardBulkService cardBulkService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void compareSingleAndBulk() throws Exception {
+        int bulkCards = Integer.getInteger("bulk.cards", 50_000);
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        LocalDate expirationDate = LocalDate.now().plusYears(3);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_CARDS; i++) {
+            cardService.createCard(new Card(String.format("6100%012d", i), "Bench User", expirationDate,
+                    CardStatus.ACTIVE, 0.0, user));
+        }
+        report("createCard", SINGLE_CARDS, System.nanoTime() - start);
+
+        StringBuilder csv = new StringBuilder("cardNumber,owner,expirationDate,userId\n");
+        for (int i = 0; i < bulkCards; i++) {
+            csv.append(String.format("6200%012d", i)).append(",Bench User,").append(expirationDate).append(',')
+                    .append(user.getId()).append('\n');
+        }
+        byte[] body = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        start = System.nanoTime();
+        BulkIssueReport result = cardBulkService.issue(CardExportFormat.CSV, new ByteArrayInputStream(body));
+        report("bulk", bulkCards, System.nanoTime() - start);
+
+        assertEquals(bulkCards, result.getCreated());
+    }
+
+    private void report(String mode, int cards, long elapsedNanos) {
+        System.out.printf("%-12s %,8.0f cards/s (%,d cards)%n", mode, cards / (elapsedNanos / 1e9), cards);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.BalanceStripes;
+import com.example.bankcards.service.StripeFoldingJob;
+import com.example.bankcards.service.TransferEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Пропускная способность зачислений на одну карту в зависимости от числа полос {@link BalanceStripes}.
+ * <p>
+ * Каждый поток переводит со своей карты на общую; при 0 полос все переводы сериализуются на строке
+ * карты-получателя. После замера полосы переносятся в баланс и проверяется, что деньги сошлись.
+ * <p>
+ * Не входит в обычный прогон тестов; запуск: {@code mvn test -Dtest=HotCardCreditBenchmark}
+ */
+@SpringBootTest(properties = {"transfer.hot-cards.enabled=true", "transfer.hot-cards.fold-interval=PT1H"})
+@ActiveProfiles("test")
+class HotCardCreditBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 300;
+    private static final int[] STRIPES = {0, 1, 2, 4, 8, 16};
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private BalanceStripes balanceStripes;
+
+    @Autowired
+    private StripeFoldingJob foldingJob;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardTransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void compareStripeCounts() throws Exception {
+        List<Long> sources = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            sources.add(createCard("bench-source-" + i, 1_000_000.0));
+        }
+
+        // Прогрев JIT и пула соединений
+        run(sources, createCard("bench-warmup", 0.0), TRANSFERS_PER_THREAD / 5);
+
+        for (int stripes : STRIPES) {
+            Long hotCardId = createCard("bench-hot-" + stripes, 0.0);
+            if (stripes > 0) {
+                balanceStripes.configure(hotCardId, stripes);
+            }
+
+            long elapsed = run(sources, hotCardId, TRANSFERS_PER_THREAD);
+            int transfers = THREADS * TRANSFERS_PER_THREAD;
+            System.out.printf("%2d stripes %,8.0f credits/s (%d threads)%n",
+                    stripes, transfers / (elapsed / 1e9), THREADS);
+
+            foldingJob.foldAll();
+            CardView view = cardRepository.findViewById(hotCardId).orElseThrow();
+            assertEquals(transfers, view.getBalance(), 0.001);
+            assertEquals(transfers, cardRepository.findById(hotCardId).orElseThrow().getBalance(), 0.001);
+        }
+    }
+
+    private long run(List<Long> sources, Long hotCardId, int transfersPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Long source : sources) {
+                tasks.add(() -> {
+                    for (int i = 0; i < transfersPerThread; i++) {
+                        transferEngine.transfer(source, hotCardId, 1.0);
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Long createCard(String number, double balance) {
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        Card card = new Card(number, "Bench User", LocalDate.now().plusYears(1), CardStatus.ACTIVE, balance, user);
+        return cardRepository.save(card).getId();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.benchmark.LoadTestRunner.Operation;
+import com.example.bankcards.benchmark.LoadTestRunner.Samples;
+import com.example.bankcards.service.CardBulkService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сквозной нагрузочный прогон: настоящее приложение на случайном порту поверх встроенной H2
+ * (профиль {@code loadtest}), N пользователей и M карт от {@link LoadTestSeeder} и нагрузка
+ * от {@link LoadTestRunner}.
+ * <p>
+ * Не входит в обычный прогон тестов; запуск:
+ * {@code mvn test -Dtest=LoadTestBenchmark -Dloadtest.clients=64 -Dloadtest.duration=60s}
+ * (остальные параметры — в {@code application-loadtest.yml}).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+class LoadTestBenchmark {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CardBulkService cardBulkService;
+
+    @Value("${loadtest.users}")
+    private int users;
+
+    @Value("${loadtest.cards}")
+    private int cards;
+
+    @Test
+    void run() throws Exception {
+        LoadTestRunner runner = new LoadTestRunner(environment);
+        if (runner.includes(Operation.TRANSFER) && cards < 2 * users) {
+            throw new IllegalStateException("Transfers need at least two cards per user");
+        }
+        Map<String, List<Long>> cardsByUser =
+                new LoadTestSeeder(jdbcTemplate, passwordEncoder, cardBulkService).seed(users, cards);
+
+        Map<Operation, Samples> results = runner.run(port, cardsByUser);
+
+        runner.report(String.format("Load test (%d users, %d cards)", users, cards), results);
+        assertTrue(results.values().stream().mapToInt(Samples::size).sum() > 0, "No requests completed");
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.bankcards.benchmark;
+
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Генератор нагрузки для запущенного приложения: параллельные HTTP-клиенты выполняют смесь
+ * логинов, {@code /api/cards/my}, {@code /filter} и {@code /transfer} через всю цепочку фильтров
+ * безопасности. Задержки собираются по каждой операции; запросы периода прогрева не учитываются.
+ * <p>
+ * Параметры — свойства {@code loadtest.*} (см. {@code application-loadtest.yml}).
+ */
+class LoadTestRunner {
+
+    enum Operation { LOGIN, MY, FILTER, TRANSFER }
+
+    private final int clients;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    private final int totalWeight;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    LoadTestRunner(Environment environment) {
+        this.clients = environment.getRequiredProperty("loadtest.clients", Integer.class);
+        this.warmup = environment.getRequiredProperty("loadtest.warmup", Duration.class);
+        this.duration = environment.getRequiredProperty("loadtest.duration", Duration.class);
+        int total = 0;
+        for (Operation operation : Operation.values()) {
+            int weight = environment.getRequiredProperty("loadtest.mix." + operation.name().toLowerCase(), Integer.class);
+            weights.put(operation, weight);
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalStateException("Operation mix is empty");
+        }
+        this.totalWeight = total;
+    }
+
+    int getClients() {
+        return clients;
+    }
+
+    boolean includes(Operation operation) {
+        return weights.get(operation) > 0;
+    }
+
+    /**
+     * Прогоняет нагрузку на {@code localhost:port}. Клиент i работает от имени i-го пользователя
+     * (по кругу) и переводит между его картами.
+     */
+    Map<Operation, Samples> run(int port, Map<String, List<Long>> cardsByUser) throws Exception {
+        List<String> usernames = new ArrayList<>(cardsByUser.keySet());
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Map<Operation, Samples>> results = new ArrayList<>();
+        try {
+            List<Future<Map<Operation, Samples>>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                String username = usernames.get(i % usernames.size());
+                List<Long> cardIds = cardsByUser.get(username);
+                futures.add(executor.submit(() -> runClient(port, username, cardIds, measureFrom, deadline)));
+            }
+            for (Future<Map<Operation, Samples>> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<Operation, Samples> merged = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            Samples total = new Samples();
+            results.forEach(client -> total.addAll(client.get(operation)));
+            merged.put(operation, total);
+        }
+        return merged;
+    }
+
+    /**
+     * Печатает по каждой операции число запросов, ошибок, пропускную способность и p50/p95/p99.
+     */
+    void report(String title, Map<Operation, Samples> results) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%n%s: %d clients, %.0f s (warmup %d s)%n", title, clients, seconds, warmup.toSeconds());
+        System.out.printf("%-10s %10s %8s %10s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms");
+        Samples total = new Samples();
+        for (Map.Entry<Operation, Samples> entry : results.entrySet()) {
+            if (includes(entry.getKey())) {
+                print(entry.getKey().name().toLowerCase(), entry.getValue(), seconds);
+                total.addAll(entry.getValue());
+            }
+        }
+        print("total", total, seconds);
+    }
+
+    private Map<Operation, Samples> runClient(int port, String username, List<Long> cardIds,
+                                              long measureFrom, long deadline)
+            throws IOException, InterruptedException {
+        Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            samples.put(operation, new Samples());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String token = login(port, username).body();
+
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            Operation operation = nextOperation(random);
+            HttpResponse<String> response;
+            switch (operation) {
+                case LOGIN:
+                    response = login(port, username);
+                    if (response.statusCode() == 200) {
+                        token = response.body();
+                    }
+                    break;
+                case MY:
+                    response = get(port, "/api/cards/my?size=10", token);
+                    break;
+                case FILTER:
+                    response = get(port, "/api/cards/filter?status=ACTIVE&size=10", token);
+                    break;
+                default:
+                    int from = random.nextInt(cardIds.size());
+                    int to = (from + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+                    response = post(port, "/api/cards/transfer?fromCardId=" + cardIds.get(from)
+                            + "&toCardId=" + cardIds.get(to) + "&amount=1.0", token);
+                    break;
+            }
+            if (now >= measureFrom) {
+                samples.get(operation).add(System.nanoTime() - now, response.statusCode() / 100 == 2);
+            }
+        }
+        return samples;
+    }
+
+    private Operation nextOperation(ThreadLocalRandom random) {
+        int roll = random.nextInt(totalWeight);
+        for (Operation operation : Operation.values()) {
+            roll -= weights.get(operation);
+            if (roll < 0) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private HttpResponse<String> login(int port, String username) throws IOException, InterruptedException {
+        String body = "{\"username\":\"" + username + "\",\"password\":\"" + LoadTestSeeder.PASSWORD + "\"}";
+        return send(request(port, "/api/auth/login")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> get(int port, String path, String token) throws IOException, InterruptedException {
+        return send(request(port, path).header("Authorization", "Bearer " + token).GET());
+    }
+
+    private HttpResponse<String> post(int port, String path, String token) throws IOException, InterruptedException {
+        return send(request(port, path).header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    private static HttpRequest.Builder request(int port, String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void print(String name, Samples samples, double seconds) {
+        long[] sorted = samples.sorted();
+        System.out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f%n", name, samples.size, samples.errors,
+                samples.size / seconds, percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99));
+    }
+
+    // Ближайший ранг, в миллисекундах
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    /**
+     * Задержки одной операции в наносекундах и число ответов не 2xx.
+     */
+    static final class Samples {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private int errors;
+
+        int size() {
+            return size;
+        }
+
+        void add(long latencyNanos, boolean success) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(size + other.size, latencies.length * 2));
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.BulkIssueReport;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.service.CardBulkService;
+import com.example.bankcards.service.CardExportFormat;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Наполняет БД для нагрузочного прогона: N пользователей с ролью USER и M карт,
+ * распределённых между ними по кругу.
+ * <p>
+ * Пользователи пишутся пакетным INSERT через JDBC; у всех один пароль, поэтому BCrypt считается
+ * один раз. Карты выпускаются через {@link CardBulkService} — тем же путём, что POST /api/cards/bulk.
+ */
+class LoadTestSeeder {
+
+    static final String USERNAME_PREFIX = "load-user-";
+    static final String PASSWORD = "load-password";
+
+    private static final double INITIAL_BALANCE = 1_000_000.0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final CardBulkService cardBulkService;
+
+    LoadTestSeeder(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder, CardBulkService cardBulkService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.cardBulkService = cardBulkService;
+    }
+
+    /**
+     * @return id карт по имени пользователя, в порядке создания пользователей
+     */
+    Map<String, List<Long>> seed(int users, int cards) {
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userRows.add(new Object[]{USERNAME_PREFIX + i, passwordHash, Role.USER.name()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, password, role) VALUES (?, ?, ?)", userRows);
+
+        List<Long> userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userIds.add(jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class,
+                    USERNAME_PREFIX + i));
+        }
+
+        LocalDate expirationDate = LocalDate.now().plusYears(3);
+        StringBuilder csv = new StringBuilder("cardNumber,owner,expirationDate,balance,userId\n");
+        for (int i = 0; i < cards; i++) {
+            int owner = i % users;
+            csv.append(String.format("5100%012d", i)).append(",Load User ").append(owner).append(',')
+                    .append(expirationDate).append(',').append(INITIAL_BALANCE).append(',')
+                    .append(userIds.get(owner)).append('\n');
+        }
+        BulkIssueReport report;
+        try {
+            report = cardBulkService.issue(CardExportFormat.CSV,
+                    new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (report.getFailed() > 0) {
+            throw new IllegalStateException("Seeding failed: " + report.getErrors().get(0).getMessage());
+        }
+
+        Map<String, List<Long>> cardsByUser = new LinkedHashMap<>();
+        for (int i = 0; i < users; i++) {
+            cardsByUser.put(USERNAME_PREFIX + i, jdbcTemplate.queryForList(
+                    "SELECT id FROM card WHERE user_id = ? ORDER BY id", Long.class, userIds.get(i)));
+        }
+        return cardsByUser;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardsApplication;
+import com.example.bankcards.benchmark.LoadTestRunner.Operation;
+import com.example.bankcards.benchmark.LoadTestRunner.Samples;
+import com.example.bankcards.config.VirtualThreads;
+import com.example.bankcards.service.CardBulkService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Платформенные потоки Tomcat против виртуальных на {@code /api/cards/my} и {@code /transfer}.
+ * <p>
+ * Для каждого режима запускается отдельный экземпляр приложения (профиль {@code loadtest},
+ * своя база H2), наполняется {@link LoadTestSeeder} и нагружается {@link LoadTestRunner};
+ * печатаются пропускная способность и p50/p95/p99. Режим виртуальных потоков требует Java 21+
+ * и на более старых JVM пропускается. Выигрыш виден, когда клиентов больше, чем потоков Tomcat (200).
+ * <p>
+ * Режимы в одной JVM несравнимы: каждый следующий получает уже прогретый JIT. Для сравнения
+ * каждый режим запускается отдельно, {@code -Dloadtest.threading.mode=platform|platform-gate|virtual-gate};
+ * без свойства выполняются все подряд.
+ * <p>
+ * Не входит в обычный прогон тестов; запуск:
+ * {@code mvn test -Dtest=ThreadingModeBenchmark -Dloadtest.clients=400 -Dloadtest.threading.mode=virtual-gate}
+ */
+class ThreadingModeBenchmark {
+
+    private static final String[][] MODES = {
+        {"platform", "platform threads", "--app.threads.virtual.enabled=false", "--db.gate.enabled=false"},
+        {"platform-gate", "platform threads + db gate", "--app.threads.virtual.enabled=false", "--db.gate.enabled=true"},
+        {"virtual-gate", "virtual threads + db gate", "--app.threads.virtual.enabled=true", "--db.gate.enabled=true"},
+    };
+
+    @Test
+    void compareModes() throws Exception {
+        String selected = System.getProperty("loadtest.threading.mode");
+        for (String[] mode : MODES) {
+            if (selected != null && !selected.equals(mode[0])) {
+                continue;
+            }
+            if (mode[2].endsWith("true") && !VirtualThreads.isSupported()) {
+                System.out.printf("%n%s: skipped, virtual threads require Java 21 or newer (running on Java %d)%n",
+                        mode[1], Runtime.version().feature());
+                continue;
+            }
+            run(mode[1], mode[2], mode[3]);
+        }
+    }
+
+    private void run(String title, String virtualThreads, String gate) throws Exception {
+        String database = title.replaceAll("\\W+", "-");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BankCardsApplication.class)
+                .profiles("loadtest")
+                .run("--server.port=0", virtualThreads, gate,
+                        "--spring.datasource.url=jdbc:h2:mem:bankcards-" + database
+                                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000",
+                        "--loadtest.mix.login=0", "--loadtest.mix.filter=0")) {
+            Environment environment = context.getEnvironment();
+            int users = environment.getRequiredProperty("loadtest.users", Integer.class);
+            int cards = environment.getRequiredProperty("loadtest.cards", Integer.class);
+            Map<String, List<Long>> cardsByUser = new LoadTestSeeder(context.getBean(JdbcTemplate.class),
+                    context.getBean(PasswordEncoder.class), context.getBean(CardBulkService.class))
+                    .seed(users, cards);
+
+            LoadTestRunner runner = new LoadTestRunner(environment);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Map<Operation, Samples> results = runner.run(port, cardsByUser);
+            runner.report(title, results);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConcurrencyGateTest {
+
+    private DatabaseConcurrencyGate gate;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:gate-test;DB_CLOSE_DELAY=-1");
+        gate = new DatabaseConcurrencyGate(dataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void testLimitsConcurrentConnections() throws Exception {
+        try (Connection first = gate.getConnection(); Connection second = gate.getConnection()) {
+            assertEquals(0, gate.getAvailablePermits());
+            assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+        }
+        assertEquals(2, gate.getAvailablePermits());
+    }
+
+    @Test
+    void testRepeatedCloseReleasesPermitOnce() throws Exception {
+        Connection connection = gate.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(2, gate.getAvailablePermits());
+    }
+
+    @Test
+    void testWaitingThreadGetsReleasedPermit() throws Exception {
+        gate = new DatabaseConcurrencyGate(gate.getTargetDataSource(), 1, Duration.ofSeconds(5));
+        Connection held = gate.getConnection();
+
+        Thread waiter = new Thread(() -> {
+            try (Connection connection = gate.getConnection()) {
+                assertTrue(connection.isValid(1));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waiter.start();
+        while (gate.getWaitingThreads() == 0) {
+            Thread.onSpinWait();
+        }
+        held.close();
+        waiter.join(5000);
+
+        assertFalse(waiter.isAlive());
+        assertEquals(1, gate.getAvailablePermits());
+    }
+
+    @Test
+    void testGaugesReportActiveConnections() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        gate.bindTo(registry);
+
+        try (Connection connection = gate.getConnection()) {
+            assertEquals(1.0, registry.get("bankcards.db.gate.active").gauge().value());
+            assertEquals(0.0, registry.get("bankcards.db.gate.waiting").gauge().value());
+        }
+    }
+}
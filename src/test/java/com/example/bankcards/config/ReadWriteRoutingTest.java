@@ -0,0 +1,165 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.CardService;
+import io.micrometer.core.instrument.MeterRegistry;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Две встроенные БД H2 вместо основной и реплики. Репликации между ними нет, поэтому по
+ * содержимому видно, куда ушёл запрос: карта, записанная в основную БД, на реплике отсутствует.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bankcards-primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "db.replica.enabled=true",
+        "db.replica.datasource.jdbc-url=jdbc:h2:mem:bankcards-replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+                + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+        "db.replica.datasource.username=sa",
+        "db.replica.lag-query=SELECT seconds FROM replica_lag",
+        "db.replica.lag-check-interval=PT1H",
+        "db.replica.max-lag=5s"})
+@ActiveProfiles("test")
+@Import(ReadWriteRoutingTest.Migrations.class)
+class ReadWriteRoutingTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate replica;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (seconds DOUBLE PRECISION)");
+        replica.update("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        lagMonitor.check();
+
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        card = cardService.createCard(new Card("4111111111111111", "Routing User", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, 100.0, user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+        replica.update("DELETE FROM card");
+    }
+
+    @Test
+    void testReadOnlyReadsGoToReplica() {
+        assertTrue(lagMonitor.isReplicaUsable());
+        double replicaConnections = routedTo("replica");
+
+        assertTrue(cardService.getCardById(card.getId()).isEmpty());
+        assertTrue(cardService.getAllCards().isEmpty());
+        assertTrue(routedTo("replica") > replicaConnections);
+
+        // «Реплика догнала»: строка появилась и на ней
+        replica.update("INSERT INTO card (id, card_number, last4, owner, expiration_date, status, balance, "
+                + "balance_stripes, user_id) VALUES (?, 'replicated', '1111', 'Routing User', ?, 'ACTIVE', 100.0, 0, ?)",
+                card.getId(), card.getExpirationDate(), card.getUser().getId());
+        assertEquals(100.0, cardService.getCardById(card.getId()).orElseThrow().getBalance(), 0.001);
+    }
+
+    @Test
+    void testWritesAndOwnershipChecksUsePrimary() {
+        assertTrue(cardService.isCardOwner(card.getId(), "user1"));
+        assertTrue(cardService.areCardsOwnedByUser(card.getId(), card.getId(), "user1"));
+
+        cardService.requestCardBlock(card.getId());
+        assertEquals(CardStatus.BLOCKED.name(), new JdbcTemplate(primaryDataSource)
+                .queryForObject("SELECT status FROM card WHERE id = ?", String.class, card.getId()));
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        replica.update("UPDATE replica_lag SET seconds = 60");
+        lagMonitor.check();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals(60.0, lagMonitor.getLagSeconds(), 0.001);
+        assertTrue(cardService.getCardById(card.getId()).isPresent());
+
+        replica.update("UPDATE replica_lag SET seconds = 1");
+        lagMonitor.check();
+        assertTrue(cardService.getCardById(card.getId()).isEmpty());
+    }
+
+    @Test
+    void testUnreachableReplicaFallsBackToPrimary() {
+        replica.execute("DROP TABLE replica_lag");
+        lagMonitor.check();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertTrue(Double.isNaN(lagMonitor.getLagSeconds()));
+        assertTrue(cardService.getCardById(card.getId()).isPresent());
+    }
+
+    private double routedTo(String target) {
+        return meterRegistry.get("bankcards.db.routing.connections").tag("target", target).counter().count();
+    }
+
+    // Схема реплики приходит репликацией; здесь обе БД мигрируются отдельно. Без @TestConfiguration:
+    // иначе класс подхватывает сканирование компонентов в прогонах, стартующих приложение целиком
+    static class Migrations {
+
+        @Bean
+        SpringLiquibase liquibase(@Qualifier("primaryDataSource") DataSource primary) {
+            return migrate(primary);
+        }
+
+        @Bean
+        SpringLiquibase replicaLiquibase(@Qualifier("replicaDataSource") DataSource replica) {
+            return migrate(replica);
+        }
+
+        private static SpringLiquibase migrate(DataSource dataSource) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:db/migration/db.changelog-master.yaml");
+            return liquibase;
+        }
+    }
+}
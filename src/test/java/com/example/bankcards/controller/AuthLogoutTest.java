@@ -0,0 +1,63 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthLogoutTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Test
+    void testLoggedOutTokenIsRejected() throws Exception {
+        String token = jwtUtil.generateToken(userRepository.findByUsername("user1").orElseThrow());
+        String other = jwtUtil.generateToken(userRepository.findByUsername("user1").orElseThrow());
+
+        mockMvc.perform(get("/api/cards/my").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/auth/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNoContent());
+        assertTrue(revokedTokenRepository.existsById(jwtUtil.extractAllClaims(token).getId()));
+
+        // Отозванный токен больше не аутентифицирует; другие токены того же пользователя работают
+        mockMvc.perform(get("/api/cards/my").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/auth/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/cards/my").header(HttpHeaders.AUTHORIZATION, "Bearer " + other))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testLogoutRequiresValidToken() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")).andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/auth/logout").header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.TransferEngine;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"transfer.hot-cards.enabled=true", "transfer.hot-cards.fold-interval=PT1H"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CardETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String adminToken;
+    private String userToken;
+    private Card source;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        adminToken = "Bearer " + jwtUtil.generateToken(userRepository.findByUsername("admin").orElseThrow());
+        userToken = "Bearer " + jwtUtil.generateToken(userRepository.findByUsername("user1").orElseThrow());
+        source = createCard(1000.0);
+        card = createCard(100.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testMatchingETagReturnsNotModifiedWithSingleQuery() throws Exception {
+        String etag = getCard(card.getId(), null);
+
+        statistics.clear();
+        mockMvc.perform(get("/api/cards/{id}", card.getId())
+                        .header(HttpHeaders.AUTHORIZATION, adminToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // Только выборка версии и баланса: карта не загружается
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testStaleETagReturnsCardWithNewETag() throws Exception {
+        String etag = getCard(card.getId(), null);
+
+        cardService.transferBetweenCards(source.getId(), card.getId(), 10.0);
+
+        String fresh = getCard(card.getId(), etag);
+        assertNotEquals(etag, fresh);
+        assertEquals(fresh, getCard(card.getId(), null));
+    }
+
+    @Test
+    void testConditionalUpdateBumpsVersion() throws Exception {
+        String etag = getCard(card.getId(), null);
+        long sourceVersion = cardRepository.findById(source.getId()).orElseThrow().getVersion();
+        long cardVersion = cardRepository.findById(card.getId()).orElseThrow().getVersion();
+
+        transferEngine.transferWithConditionalUpdate(source.getId(), card.getId(), 10.0);
+
+        assertEquals(sourceVersion + 1, cardRepository.findById(source.getId()).orElseThrow().getVersion());
+        assertEquals(cardVersion + 1, cardRepository.findById(card.getId()).orElseThrow().getVersion());
+        assertNotEquals(etag, getCard(card.getId(), etag));
+    }
+
+    @Test
+    void testStripeCreditChangesETag() throws Exception {
+        cardService.setBalanceStripes(card.getId(), 2);
+        String etag = getCard(card.getId(), null);
+        String listETag = getMyCards(null);
+        long version = cardRepository.findById(card.getId()).orElseThrow().getVersion();
+
+        // Зачисление в полосу не трогает строку карты, но меняет её баланс в ответе
+        transferEngine.transfer(source.getId(), card.getId(), 5.0);
+
+        assertEquals(version, cardRepository.findById(card.getId()).orElseThrow().getVersion());
+        assertNotEquals(etag, getCard(card.getId(), etag));
+        assertNotEquals(listETag, getMyCards(listETag));
+    }
+
+    @Test
+    void testMyCardsETagCoversEveryCardOfUser() throws Exception {
+        String etag = getMyCards(null);
+
+        statistics.clear();
+        mockMvc.perform(get("/api/cards/my").param("size", "1")
+                        .header(HttpHeaders.AUTHORIZATION, userToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        // Меняется карта за пределами первой страницы
+        Card updated = new Card(null, "Test User", LocalDate.now().plusYears(1), CardStatus.BLOCKED, 100.0, null);
+        cardService.updateCard(card.getId(), updated);
+        String afterUpdate = getMyCards(etag);
+        assertNotEquals(etag, afterUpdate);
+
+        createCard(0.0);
+        assertNotEquals(afterUpdate, getMyCards(afterUpdate));
+    }
+
+    @Test
+    void testMyCardsETagTakesOneQueryWithHotCards() throws Exception {
+        cardService.setBalanceStripes(card.getId(), 2);
+        transferEngine.transfer(source.getId(), card.getId(), 5.0);
+
+        // Без If-None-Match: сводка с полосами и страница — два запроса в одной транзакции
+        statistics.clear();
+        String etag = getMyCards(null);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getTransactionCount());
+
+        statistics.clear();
+        mockMvc.perform(get("/api/cards/my").param("size", "1")
+                        .header(HttpHeaders.AUTHORIZATION, userToken)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    // GET карты от имени администратора; возвращает ETag ответа 200
+    private String getCard(Long id, String ifNoneMatch) throws Exception {
+        var request = get("/api/cards/{id}", id).header(HttpHeaders.AUTHORIZATION, adminToken);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")))
+                .andExpect(content().string(containsString("\"id\":" + id)))
+                .andReturn();
+        assertFalse(result.getResponse().getContentAsString().contains("version"));
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String getMyCards(String ifNoneMatch) throws Exception {
+        var request = get("/api/cards/my").param("size", "1").header(HttpHeaders.AUTHORIZATION, userToken);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private Card createCard(double balance) {
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        Card card = new Card("etag-test-" + System.nanoTime(), "Test User", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, balance, user);
+        return cardRepository.save(card);
+    }
+}
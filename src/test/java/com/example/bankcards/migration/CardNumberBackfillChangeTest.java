@@ -0,0 +1,72 @@
+package com.example.bankcards.migration;
+
+import com.example.bankcards.service.EncryptionService;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardNumberBackfillChangeTest {
+
+    private static final String BLIND_INDEX_KEY = "test-blind-index-key-0123456789abcdef";
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:backfill;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE card (id BIGINT PRIMARY KEY, card_number VARCHAR(500) NOT NULL, "
+                    + "last4 VARCHAR(4), card_number_hash VARCHAR(64))");
+        }
+        System.setProperty(CardNumberBackfillChange.BLIND_INDEX_KEY_PROPERTY, BLIND_INDEX_KEY);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        System.clearProperty(CardNumberBackfillChange.BLIND_INDEX_KEY_PROPERTY);
+        connection.close();
+    }
+
+    @Test
+    void testUndecryptableRowsFailTheChangeAfterFillingTheRest() throws Exception {
+        EncryptionService encryptionService = EncryptionService.withoutMetrics(BLIND_INDEX_KEY);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO card (id, card_number) VALUES "
+                    + "(1, '" + encryptionService.encrypt("4111111111111111") + "'), "
+                    + "(2, 'not-a-ciphertext'), "
+                    + "(3, '" + encryptionService.encrypt("5500000000000004") + "')");
+        }
+        connection.commit();
+
+        CardNumberBackfillChange change = new CardNumberBackfillChange();
+        change.setBatchSize("2");
+        Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
+
+        CustomChangeException error = assertThrows(CustomChangeException.class, () -> change.execute(database));
+
+        assertEquals("Cannot backfill 1 cards, ids: [2]", error.getMessage());
+        // Расшифрованные строки заполнены ключом из окружения и зафиксированы, непрочитанная осталась NULL
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, last4, card_number_hash FROM card ORDER BY id")) {
+            assertTrue(rs.next());
+            assertEquals("1111", rs.getString("last4"));
+            assertEquals(encryptionService.blindIndex("4111111111111111"), rs.getString("card_number_hash"));
+            assertTrue(rs.next());
+            assertNull(rs.getString("card_number_hash"));
+            assertTrue(rs.next());
+            assertEquals("0004", rs.getString("last4"));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret";
+
+    private UserRepository userRepository;
+    private UserCache userCache;
+    private VerifiedTokenCache tokenCache;
+    private RevokedTokenRepository revokedTokenRepository;
+    private TokenRevocationList revocationList;
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userCache = new UserCache(userRepository, 100, Duration.ofMinutes(5));
+        tokenCache = new VerifiedTokenCache(100);
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        revocationList = new TokenRevocationList(revokedTokenRepository, 1000, 0.01);
+        jwtUtil = new JwtUtil(SECRET, tokenCache, userCache, revocationList);
+    }
+
+    @Test
+    void testTokenIsVerifiedOnlyOnce() {
+        String token = jwtUtil.generateToken("user1");
+
+        String username = jwtUtil.extractUsername(token);
+        assertTrue(jwtUtil.validateToken(token, username));
+        Authentication auth = jwtUtil.getAuthentication(token);
+
+        assertEquals("user1", auth.getName());
+        assertEquals(1, tokenCache.getMissCount());
+        assertEquals(2, tokenCache.getHitCount());
+        assertEquals(1, tokenCache.size());
+    }
+
+    @Test
+    void testTokenSignedWithOtherKeyIsRejected() {
+        JwtUtil otherJwtUtil = new JwtUtil("other-secret-other-secret-other-secret", new VerifiedTokenCache(100),
+                userCache, revocationList);
+        String foreignToken = otherJwtUtil.generateToken("user1");
+
+        assertThrows(JwtException.class, () -> jwtUtil.extractUsername(foreignToken));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        VerifiedTokenCache smallCache = new VerifiedTokenCache(10);
+        JwtUtil util = new JwtUtil(SECRET, smallCache, userCache, revocationList);
+
+        for (int i = 0; i < 50; i++) {
+            util.extractUsername(util.generateToken("user" + i));
+        }
+
+        assertTrue(smallCache.size() <= 10);
+        assertTrue(smallCache.getEvictionCount() > 0);
+    }
+
+    @Test
+    void testAuthoritiesComeFromUserCache() {
+        User admin = new User("admin", "password", Role.ADMIN);
+        admin.setId(1L);
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(admin));
+        String token = jwtUtil.generateToken("admin");
+
+        Authentication first = jwtUtil.getAuthentication(token);
+        Authentication second = jwtUtil.getAuthentication(token);
+
+        assertEquals("ROLE_ADMIN", first.getAuthorities().iterator().next().getAuthority());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        verify(userRepository, times(1)).findByUsername("admin");
+    }
+
+    @Test
+    void testUnknownUserGetsNoAuthorities() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        Authentication auth = jwtUtil.getAuthentication(jwtUtil.generateToken("ghost"));
+
+        assertEquals("ghost", auth.getName());
+        assertTrue(auth.getAuthorities().isEmpty());
+    }
+
+    @Test
+    void testRoleAndUserIdAreReadFromToken() {
+        User admin = new User("admin", "password", Role.ADMIN);
+        admin.setId(42L);
+        String token = jwtUtil.generateToken(admin);
+
+        Authentication auth = jwtUtil.getAuthentication(token);
+
+        assertEquals("admin", auth.getName());
+        assertEquals("ROLE_ADMIN", auth.getAuthorities().iterator().next().getAuthority());
+        CachedUser principal = (CachedUser) auth.getPrincipal();
+        assertEquals(42L, principal.getId());
+        assertEquals(Role.ADMIN, principal.getRole());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testRevokedTokenIsRejected() {
+        String token = jwtUtil.generateToken("user1");
+        String other = jwtUtil.generateToken("user1");
+        Claims claims = jwtUtil.extractAllClaims(token);
+        assertNotEquals(claims.getId(), jwtUtil.extractAllClaims(other).getId());
+
+        assertTrue(jwtUtil.revoke(claims));
+        assertFalse(jwtUtil.revoke(claims));
+
+        assertFalse(jwtUtil.validateToken(token, "user1"));
+        assertTrue(jwtUtil.validateToken(other, "user1"));
+        verify(revokedTokenRepository, times(1)).save(argThat(revoked -> revoked.getJti().equals(claims.getId())));
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.controller.AuthController;
+import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PasswordVerifierTest {
+
+    private UserRepository userRepository;
+    private MeterRegistry meterRegistry;
+    private PasswordVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (verifier != null) {
+            verifier.destroy();
+        }
+    }
+
+    @Test
+    void testVerifiesOnPoolThread() throws Exception {
+        PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        verifier = new PasswordVerifier(encoder, userRepository, meterRegistry, 4, 2, 8);
+        User user = user(encoder.encode("secret"));
+
+        assertTrue(verifier.verify(user, "secret").get(5, TimeUnit.SECONDS));
+        assertFalse(verifier.verify(user, "wrong").get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, meterRegistry.get("bankcards.auth.password.check").tag("outcome", "match").timer().count());
+        assertEquals(1, meterRegistry.get("bankcards.auth.password.check").tag("outcome", "mismatch").timer().count());
+        verify(userRepository, never()).updatePassword(any(), any(), any());
+    }
+
+    @Test
+    void testRehashesWhenCostDiffers() throws Exception {
+        PasswordEncoder oldEncoder = new BCryptPasswordEncoder(4);
+        verifier = new PasswordVerifier(new BCryptPasswordEncoder(5), userRepository, meterRegistry, 5, 1, 8);
+        String oldHash = oldEncoder.encode("secret");
+        User user = user(oldHash);
+
+        // Неверный пароль хэш не меняет
+        assertFalse(verifier.verify(user, "wrong").get(5, TimeUnit.SECONDS));
+        verify(userRepository, never()).updatePassword(any(), any(), any());
+
+        // Пересчёт — отдельная задача после ответа на проверку
+        assertTrue(verifier.verify(user, "secret").get(5, TimeUnit.SECONDS));
+        verify(userRepository, timeout(5000)).updatePassword(eq(user.getId()), eq(oldHash),
+                argThat(hash -> hash.startsWith("$2a$05$") && new BCryptPasswordEncoder().matches("secret", hash)));
+        assertEquals(1, meterRegistry.get("bankcards.auth.password.rehash").counter().count());
+
+        assertTrue(verifier.needsRehash("$2b$12$abcdefghijklmnopqrstuv"));
+        assertFalse(verifier.needsRehash("$2a$05$abcdefghijklmnopqrstuv"));
+        assertFalse(verifier.needsRehash("{noop}secret"));
+    }
+
+    @Test
+    void testShedsLoginsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = mock(PasswordEncoder.class);
+        when(blockingEncoder.matches(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        verifier = new PasswordVerifier(blockingEncoder, userRepository, meterRegistry, 10, 1, 1);
+        User user = user("hash");
+        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user));
+        AuthController controller = new AuthController(mock(JwtUtil.class), userRepository, verifier);
+
+        // Один поток занят, одна проверка ждёт в очереди
+        CompletableFuture<Boolean> running = verifier.verify(user, "secret");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = verifier.verify(user, "secret");
+        assertEquals(1.0, meterRegistry.get("bankcards.auth.password.queue").gauge().value());
+
+        assertThrows(RejectedExecutionException.class, () -> verifier.verify(user, "secret"));
+        ResponseEntity<String> shed = controller.login(login("user1", "secret")).get(1, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, shed.getStatusCode());
+        assertEquals("1", shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, meterRegistry.get("bankcards.auth.password.rejected").functionCounter().count());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testRehashIsSkippedWhileLoginsWait() throws Exception {
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch releaseOthers = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.matches(any(), any())).thenAnswer(invocation -> {
+            if ("first".equals(invocation.getArgument(0))) {
+                started.countDown();
+                return releaseFirst.await(5, TimeUnit.SECONDS);
+            }
+            return releaseOthers.await(5, TimeUnit.SECONDS);
+        });
+        when(encoder.encode(any())).thenReturn("$2a$05$rehashed");
+        verifier = new PasswordVerifier(encoder, userRepository, meterRegistry, 5, 1, 8);
+        User user = user("$2a$04$abcdefghijklmnopqrstuv");
+
+        // Единственный поток проверяет пароль с устаревшим cost, за ним ждут ещё два логина
+        CompletableFuture<Boolean> first = verifier.verify(user, "first");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = verifier.verify(user, "second");
+        CompletableFuture<Boolean> third = verifier.verify(user, "third");
+
+        releaseFirst.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("bankcards.auth.password.rehash.skipped").functionCounter().count() < 1
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, meterRegistry.get("bankcards.auth.password.rehash.skipped").functionCounter().count());
+        verify(encoder, never()).encode(any());
+
+        releaseOthers.countDown();
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertTrue(third.get(5, TimeUnit.SECONDS));
+    }
+
+    private static User user(String passwordHash) {
+        User user = new User("user1", passwordHash, Role.USER);
+        user.setId(1L);
+        return user;
+    }
+
+    private static LoginRequest login(String username, String password) {
+        LoginRequest request = new LoginRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+        return request;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "rate-limit.endpoints.login.per-ip.limit=4",
+        "rate-limit.endpoints.login.per-ip.period=PT1H",
+        "rate-limit.endpoints.login.per-user.limit=2",
+        "rate-limit.endpoints.login.per-user.period=PT1H",
+        "rate-limit.endpoints.transfer.per-user.limit=2",
+        "rate-limit.endpoints.transfer.per-user.period=PT1H"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RateLimitFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter.clear();
+    }
+
+    @Test
+    void testLoginLimitedPerUsername() throws Exception {
+        login("user1", "10.0.0.1").andExpect(status().isUnauthorized());
+        login("user1", "10.0.0.2").andExpect(status().isUnauthorized());
+
+        // Третья попытка за час — отказ до проверки пароля, с любого адреса
+        login("user1", "10.0.0.3")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1800"))
+                .andExpect(content().string(containsString("\"status\":429")));
+
+        // Тело дошло до контроллера без изменений: другой пользователь проверяется как обычно
+        login("admin", "10.0.0.3").andExpect(status().isUnauthorized());
+        assertEquals(1.0, meterRegistry.get("bankcards.ratelimit.rejected")
+                .tags("endpoint", "login", "key", "user").functionCounter().count());
+    }
+
+    @Test
+    void testLoginLimitedPerIp() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            login("stuffing-" + i, "10.0.0.9").andExpect(status().isUnauthorized());
+        }
+        login("stuffing-4", "10.0.0.9").andExpect(status().isTooManyRequests());
+        login("stuffing-4", "10.0.0.10").andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void testTransferLimitedPerTokenSubject() throws Exception {
+        String user = "Bearer " + jwtUtil.generateToken(userRepository.findByUsername("user1").orElseThrow());
+        String admin = "Bearer " + jwtUtil.generateToken(userRepository.findByUsername("admin").orElseThrow());
+
+        transfer(user).andExpect(status().isForbidden());
+        transfer(user).andExpect(status().isForbidden());
+        transfer(user).andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+        // Лимит привязан к пользователю из проверенного токена, а не к адресу
+        transfer(admin).andExpect(status().isForbidden());
+    }
+
+    // Пропущенный фильтром логин отвечает асинхронно (проверка пароля в PasswordVerifier)
+    private ResultActions login(String username, String clientIp) throws Exception {
+        ResultActions actions = mockMvc.perform(post("/api/auth/login")
+                .with(request -> {
+                    request.setRemoteAddr(clientIp);
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"wrong\"}"));
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+
+    private ResultActions transfer(String authorization) throws Exception {
+        return mockMvc.perform(post("/api/cards/transfer")
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .param("fromCardId", "-1")
+                .param("toCardId", "-2")
+                .param("amount", "1"));
+    }
+}
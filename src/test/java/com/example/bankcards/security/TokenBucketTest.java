@@ -0,0 +1,116 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testBurstUpToCapacityThenWait() {
+        long now = 1_000 * SECOND;
+        TokenBucket bucket = new TokenBucket(3, SECOND, now);
+
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(0, bucket.tryAcquire(now));
+        assertEquals(SECOND, bucket.tryAcquire(now));
+        assertEquals(SECOND / 4, bucket.tryAcquire(now + SECOND * 3 / 4));
+    }
+
+    @Test
+    void testLazyRefillIsCappedAtCapacity() {
+        long now = 1_000 * SECOND;
+        TokenBucket bucket = new TokenBucket(2, SECOND, now);
+        bucket.tryAcquire(now);
+        bucket.tryAcquire(now);
+        assertFalse(bucket.isFull(now));
+
+        // Через час токенов не больше ёмкости
+        long later = now + 3600 * SECOND;
+        assertTrue(bucket.isFull(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void testConcurrentAcquireNeverExceedsCapacity() throws Exception {
+        long now = System.nanoTime();
+        // Пополнение за 1000 секунд — за время теста новых токенов не появится
+        TokenBucket bucket = new TokenBucket(1000, 1000 * SECOND, now);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int acquired = 0;
+                    for (int i = 0; i < 500; i++) {
+                        if (bucket.tryAcquire(System.nanoTime()) == 0) {
+                            acquired++;
+                        }
+                    }
+                    return acquired;
+                });
+            }
+            int total = 0;
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                total += future.get();
+            }
+            assertEquals(1000, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLimiterKeepsKeysWithinBound() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxKeys(100);
+        RateLimitProperties.Endpoint login = new RateLimitProperties.Endpoint();
+        login.setPath("/api/auth/login");
+        login.setMethod("POST");
+        login.setPerIp(limit(1, Duration.ofHours(1)));
+        properties.getEndpoints().put("login", login);
+        RateLimiter limiter = new RateLimiter(properties);
+
+        RateLimiter.Rule rule = limiter.match(request("POST", "/api/auth/login"));
+        assertNotNull(rule);
+        assertNull(limiter.match(request("GET", "/api/auth/login")));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.acquire(rule, "10.0.0." + i, null));
+        }
+        assertTrue(limiter.size() <= 100, "Buckets: " + limiter.size());
+        assertTrue(limiter.getEvictionCount() >= 900);
+
+        // Ведро, которое ещё не вытеснено, по-прежнему ограничивает
+        assertTrue(limiter.acquire(rule, "10.0.0.999", null) > 0);
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static RateLimitProperties.Limit limit(int limit, Duration period) {
+        RateLimitProperties.Limit result = new RateLimitProperties.Limit();
+        result.setLimit(limit);
+        result.setPeriod(period);
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationListTest {
+
+    private static final long HOUR = 3_600_000;
+
+    private RevokedTokenRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RevokedTokenRepository.class);
+    }
+
+    @Test
+    void testBloomFilterHasNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<UUID> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID key = UUID.randomUUID();
+            filter.put(key);
+            added.add(key);
+        }
+        // ~9,6 бита на элемент при p = 1%
+        assertTrue(filter.bitCount() < 100_000, "Bits: " + filter.bitCount());
+        added.forEach(key -> assertTrue(filter.mightContain(key)));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testRevokedTokenIsFoundWithoutDatabase() {
+        TokenRevocationList list = new TokenRevocationList(repository, 100, 0.01);
+        String jti = UUID.randomUUID().toString();
+
+        assertTrue(list.revoke(jti, new Date(System.currentTimeMillis() + HOUR)));
+        assertFalse(list.revoke(jti, new Date(System.currentTimeMillis() + HOUR)));
+        // Истёкший токен и так отклоняется — в список он не попадает
+        assertFalse(list.revoke(UUID.randomUUID().toString(), new Date(System.currentTimeMillis() - 1)));
+        verify(repository, times(1)).save(any());
+
+        assertTrue(list.isRevoked(jti));
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(list.isRevoked(UUID.randomUUID().toString()));
+        }
+        assertFalse(list.isRevoked(null));
+        assertFalse(list.isRevoked("not-a-uuid"));
+        assertEquals(1, list.getHitCount());
+        assertEquals(1_000, list.getFilteredOutCount() + list.getFalsePositiveCount());
+        assertTrue(list.getFilteredOutCount() > 900);
+
+        // Сверх расчётной ёмкости фильтр пересобирается, отозванные остаются отозванными
+        List<String> more = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String id = UUID.randomUUID().toString();
+            list.revoke(id, new Date(System.currentTimeMillis() + HOUR));
+            more.add(id);
+        }
+        more.forEach(id -> assertTrue(list.isRevoked(id)));
+        verify(repository, never()).findRevokedSince(any(), any());
+    }
+
+    @Test
+    void testSyncPicksUpOtherNodesAndPurgeDropsExpired() throws Exception {
+        TokenRevocationList list = new TokenRevocationList(repository, 100, 0.01);
+        String remote = UUID.randomUUID().toString();
+        String expiring = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        when(repository.findRevokedSince(any(), any())).thenReturn(List.of(
+                new RevokedToken(remote, now.plusHours(1), now),
+                new RevokedToken(expiring, now.plusNanos(50_000_000), now)));
+
+        list.sync();
+        assertTrue(list.isRevoked(remote));
+        assertTrue(list.isRevoked(expiring));
+        assertEquals(2, list.size());
+
+        Thread.sleep(100);
+        list.purge();
+        assertEquals(1, list.size());
+        assertTrue(list.isRevoked(remote));
+        assertFalse(list.isRevoked(expiring));
+        verify(repository).deleteExpired(any());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserCacheEvictionListenerTest {
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.findByUsername("cache-test").ifPresent(userRepository::delete);
+        userCache.clear();
+    }
+
+    @Test
+    void testSavingUserEvictsCachedRole() {
+        User user = userRepository.save(new User("cache-test", "hash", Role.USER));
+        assertEquals(Role.USER, userCache.findByUsername("cache-test").orElseThrow().getRole());
+
+        user.setRole(Role.ADMIN);
+        userRepository.save(user);
+
+        assertEquals(Role.ADMIN, userCache.findByUsername("cache-test").orElseThrow().getRole());
+    }
+
+    @Test
+    void testDeletingUserEvictsEntry() {
+        User user = userRepository.save(new User("cache-test", "hash", Role.USER));
+        assertTrue(userCache.findByUsername("cache-test").isPresent());
+
+        userRepository.delete(user);
+
+        assertTrue(userCache.findByUsername("cache-test").isEmpty());
+    }
+}
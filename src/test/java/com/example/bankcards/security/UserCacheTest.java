@@ -0,0 +1,94 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserCacheTest {
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername(anyString())).thenAnswer(invocation -> {
+            String username = invocation.getArgument(0);
+            User user = new User(username, "hash", Role.USER);
+            user.setId((long) username.hashCode());
+            return Optional.of(user);
+        });
+    }
+
+    @Test
+    void testRepeatedLookupsHitCache() {
+        UserCache cache = new UserCache(userRepository, 100, Duration.ofMinutes(5));
+
+        CachedUser first = cache.findByUsername("user1").orElseThrow();
+        CachedUser second = cache.findByUsername("user1").orElseThrow();
+
+        assertSame(first, second);
+        assertEquals(Role.USER, first.getRole());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        verify(userRepository, times(1)).findByUsername("user1");
+    }
+
+    @Test
+    void testExpiredEntryIsReloaded() throws Exception {
+        UserCache cache = new UserCache(userRepository, 100, Duration.ofMillis(1));
+
+        cache.findByUsername("user1");
+        Thread.sleep(5);
+        cache.findByUsername("user1");
+
+        verify(userRepository, times(2)).findByUsername("user1");
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testEvictRemovesEntryByUsernameAndId() {
+        UserCache cache = new UserCache(userRepository, 100, Duration.ofMinutes(5));
+        CachedUser cached = cache.findByUsername("user1").orElseThrow();
+
+        // Переименованный пользователь: вытесняется по id, хотя имя уже другое
+        User renamed = new User("user1-renamed", "hash", Role.ADMIN);
+        renamed.setId(cached.getId());
+        cache.evict(renamed);
+
+        assertEquals(0, cache.size());
+        cache.findByUsername("user1");
+        verify(userRepository, times(2)).findByUsername("user1");
+    }
+
+    @Test
+    void testUnknownUserIsNotCached() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+        UserCache cache = new UserCache(userRepository, 100, Duration.ofMinutes(5));
+
+        assertTrue(cache.findByUsername("ghost").isEmpty());
+        assertTrue(cache.findByUsername("ghost").isEmpty());
+
+        assertEquals(0, cache.size());
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        UserCache cache = new UserCache(userRepository, 10, Duration.ofMinutes(5));
+
+        for (int i = 0; i < 50; i++) {
+            cache.findByUsername("user" + i);
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceStripe;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"transfer.hot-cards.enabled=true", "transfer.hot-cards.fold-interval=PT1H"})
+@ActiveProfiles("test")
+class BalanceStripesTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private StripeFoldingJob foldingJob;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardBalanceStripeRepository stripeRepository;
+
+    @Autowired
+    private CardTransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Card source;
+    private Card hotCard;
+
+    @BeforeEach
+    void setUp() {
+        source = createCard(1000.0);
+        hotCard = createCard(100.0);
+        cardService.setBalanceStripes(hotCard.getId(), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testCreditsLandInStripesAndCountInBalance() {
+        for (int i = 0; i < 10; i++) {
+            transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 5.0);
+        }
+        transferEngine.transferWithConditionalUpdate(source.getId(), hotCard.getId(), 5.0);
+
+        assertEquals(100.0, cardBalance(hotCard), 0.001);
+        assertEquals(55.0, stripeTotal(hotCard), 0.001);
+        assertEquals(155.0, viewBalance(hotCard), 0.001);
+        assertEquals(945.0, cardBalance(source), 0.001);
+        assertEquals(22, transactionRepository.count());
+    }
+
+    @Test
+    void testDebitFoldsStripesWhenCardBalanceIsShort() {
+        transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 50.0);
+
+        transferEngine.transferWithLocks(hotCard.getId(), source.getId(), 120.0);
+        assertEquals(30.0, cardBalance(hotCard), 0.001);
+        assertEquals(0.0, stripeTotal(hotCard), 0.001);
+
+        transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 20.0);
+        transferEngine.transferWithConditionalUpdate(hotCard.getId(), source.getId(), 40.0);
+        assertEquals(10.0, viewBalance(hotCard), 0.001);
+
+        assertThrows(RuntimeException.class,
+                () -> transferEngine.transferWithConditionalUpdate(hotCard.getId(), source.getId(), 11.0));
+    }
+
+    @Test
+    void testHotCardsAreLoadedOnStartup() {
+        // Другой узел или перезапуск: список горячих карт не зависит от фоновой задачи
+        BalanceStripes restarted = new BalanceStripes(cardRepository, stripeRepository, false);
+        assertEquals(0, restarted.stripesOf(hotCard.getId()));
+
+        restarted.afterPropertiesSet();
+
+        assertEquals(4, restarted.stripesOf(hotCard.getId()));
+        assertEquals(Set.of(hotCard.getId()), restarted.getHotCardIds());
+    }
+
+    @Test
+    void testFoldingJobMovesStripesIntoBalance() {
+        transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 25.0);
+
+        foldingJob.foldAll();
+
+        assertEquals(125.0, cardBalance(hotCard), 0.001);
+        assertEquals(0.0, stripeTotal(hotCard), 0.001);
+        assertEquals(125.0, viewBalance(hotCard), 0.001);
+    }
+
+    @Test
+    void testDisablingFoldsAndRemovesStripes() {
+        transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 25.0);
+
+        cardService.setBalanceStripes(hotCard.getId(), 0);
+
+        assertEquals(125.0, cardBalance(hotCard), 0.001);
+        assertTrue(stripes(hotCard).isEmpty());
+        // Без полос зачисление снова идёт в строку карты
+        transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 5.0);
+        assertEquals(130.0, cardBalance(hotCard), 0.001);
+    }
+
+    @Test
+    void testInactiveHotCardRejectsCredit() {
+        Card card = cardRepository.findById(hotCard.getId()).orElseThrow();
+        card.setStatus(CardStatus.BLOCKED);
+        cardRepository.save(card);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> transferEngine.transferWithLocks(source.getId(), hotCard.getId(), 5.0));
+        assertEquals("Destination card is not active", e.getMessage());
+        assertEquals(0.0, stripeTotal(hotCard), 0.001);
+        assertEquals(1000.0, cardBalance(source), 0.001);
+    }
+
+    @Test
+    void testConcurrentCreditsAndFoldingKeepTotal() throws Exception {
+        List<Card> sources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            sources.add(createCard(1000.0));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Card from : sources) {
+                tasks.add(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        transferEngine.transfer(from.getId(), hotCard.getId(), 2.0);
+                    }
+                    return null;
+                });
+            }
+            tasks.add(() -> {
+                for (int i = 0; i < 10; i++) {
+                    foldingJob.foldAll();
+                }
+                return null;
+            });
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100.0 + 8 * 25 * 2.0, viewBalance(hotCard), 0.001);
+    }
+
+    @Test
+    void testConcurrentCreditsAndShortDebitsFromHotCardDoNotDeadlock() throws Exception {
+        // Горячая карта с меньшим id и пустым card.balance: каждое списание с неё переносит полосы,
+        // а зачисления на неё с карты с большим id идут в полосы раньше блокировки отправителя
+        Card counterpart = createCard(1000.0);
+        assertTrue(hotCard.getId() < counterpart.getId());
+        transferEngine.transferWithLocks(hotCard.getId(), source.getId(), 100.0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int kind = t % 4;
+                tasks.add(() -> {
+                    int succeeded = 0;
+                    for (int i = 0; i < 25; i++) {
+                        try {
+                            switch (kind) {
+                                case 0 -> transferEngine.transferWithLocks(counterpart.getId(), hotCard.getId(), 5.0);
+                                case 1 -> transferEngine.transferWithConditionalUpdate(
+                                        counterpart.getId(), hotCard.getId(), 5.0);
+                                case 2 -> transferEngine.transferWithLocks(hotCard.getId(), counterpart.getId(), 5.0);
+                                default -> {
+                                    TransferResult result = transferEngine.transferBatch(
+                                            List.of(new TransferRequest(hotCard.getId(), counterpart.getId(), 5.0)),
+                                            Set.of(hotCard.getId(), counterpart.getId())).get(0);
+                                    if (!result.isSuccess()) {
+                                        assertEquals("Insufficient balance", result.getMessage());
+                                        continue;
+                                    }
+                                }
+                            }
+                            succeeded++;
+                        } catch (RuntimeException e) {
+                            // Нехватка — ожидаемый отказ; взаимная блокировка или таймаут блокировки — нет
+                            assertEquals("Insufficient balance", e.getMessage(), () -> e.toString());
+                        }
+                    }
+                    return succeeded;
+                });
+            }
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1000.0, viewBalance(hotCard) + viewBalance(counterpart), 0.001);
+    }
+
+    private double cardBalance(Card card) {
+        return cardRepository.findById(card.getId()).orElseThrow().getBalance();
+    }
+
+    private double viewBalance(Card card) {
+        CardView view = cardRepository.findViewById(card.getId()).orElseThrow();
+        return view.getBalance();
+    }
+
+    private double stripeTotal(Card card) {
+        return stripes(card).stream().mapToDouble(CardBalanceStripe::getAmount).sum();
+    }
+
+    private List<CardBalanceStripe> stripes(Card card) {
+        return stripeRepository.findAll().stream().filter(s -> s.getCardId().equals(card.getId())).toList();
+    }
+
+    private Card createCard(double balance) {
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        Card card = new Card("stripes-" + System.nanoTime(), "Test User", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, balance, user);
+        return cardRepository.save(card);
+    }
+}
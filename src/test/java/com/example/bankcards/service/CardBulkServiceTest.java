@@ -0,0 +1,184 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkIssueReport;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"cards.bulk.chunk-size=25", "cards.bulk.max-errors=3"})
+@ActiveProfiles("test")
+class CardBulkServiceTest {
+
+    @Autowired
+    private CardBulkService cardBulkService;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findByUsername("user1").orElseThrow().getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testCsvIssuesCards() throws IOException {
+        String csv = "\uFEFFuserId,cardNumber,owner,expirationDate,balance\r\n"
+                + userId + ",4111 1111 1111 1111,\"Doe, John\",2030-01-31,150.25\r\n"
+                + "\r\n"
+                + userId + ",5500-0000-0000-0004,\"Jane \"\"JJ\"\" Roe\",2031-12-31,\r\n";
+
+        BulkIssueReport report = issue(CardExportFormat.CSV, csv);
+
+        assertEquals(2, report.getTotal());
+        assertEquals(2, report.getCreated());
+        assertTrue(report.getErrors().isEmpty());
+
+        Card card = cardRepository.findByCardNumberHash(encryptionService.blindIndex("4111111111111111")).orElseThrow();
+        assertEquals("4111111111111111", encryptionService.decrypt(card.getCardNumber()));
+        assertEquals("1111", card.getLast4());
+        assertEquals("Doe, John", card.getOwner());
+        assertEquals(LocalDate.of(2030, 1, 31), card.getExpirationDate());
+        assertEquals(CardStatus.ACTIVE, card.getStatus());
+        assertEquals(150.25, card.getBalance(), 0.001);
+
+        Card second = cardRepository.findByCardNumberHash(encryptionService.blindIndex("5500000000000004")).orElseThrow();
+        assertEquals("Jane \"JJ\" Roe", second.getOwner());
+        assertEquals(0.0, second.getBalance(), 0.001);
+    }
+
+    @Test
+    void testNdjsonReportsErrorsByLine() throws IOException {
+        cardBulkService.issue(CardExportFormat.NDJSON, stream(row("4000000000000002", userId)));
+
+        String ndjson = String.join("\n",
+                row("4000000000000010", userId),
+                "{not json",
+                "{\"cardNumber\":\"4000000000000028\",\"expirationDate\":\"2030-01-01\",\"userId\":" + userId + "}",
+                row("12ab", userId),
+                "{\"cardNumber\":\"4000000000000036\",\"owner\":\"X\",\"expirationDate\":\"2030-01-01\","
+                        + "\"balance\":-1,\"userId\":" + userId + "}",
+                row("4000000000000044", 999_999L),
+                row("4000000000000010", userId),
+                row("4000000000000002", userId),
+                "{\"cardNumber\":\"4000000000000051\",\"owner\":\"X\",\"expirationDate\":\"2030-01-01\","
+                        + "\"status\":\"blocked\",\"userId\":" + userId + "}");
+
+        BulkIssueReport report = cardBulkService.issue(CardExportFormat.NDJSON, stream(ndjson));
+
+        assertEquals(9, report.getTotal());
+        assertEquals(2, report.getCreated());
+        assertEquals(7, report.getFailed());
+        // В отчёте только первые max-errors ошибок, по порядку строк
+        assertTrue(report.isErrorsTruncated());
+        List<BulkIssueReport.LineError> errors = report.getErrors();
+        assertEquals(3, errors.size());
+        assertEquals(2, errors.get(0).getLine());
+        assertEquals("Malformed JSON line", errors.get(0).getMessage());
+        assertEquals(3, errors.get(1).getLine());
+        assertEquals("owner is required", errors.get(1).getMessage());
+        assertEquals(4, errors.get(2).getLine());
+        assertEquals("Invalid card number", errors.get(2).getMessage());
+
+        Card blocked = cardRepository.findByCardNumberHash(encryptionService.blindIndex("4000000000000051")).orElseThrow();
+        assertEquals(CardStatus.BLOCKED, blocked.getStatus());
+    }
+
+    @Test
+    void testRejectedRowsDoNotAffectOthers() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            // Каждая десятая строка повторяет номер, уже записанный в предыдущей порции
+            long number = i % 10 == 9 && i > 30 ? i - 30 : i;
+            ndjson.append(row(String.format("4200%012d", number), userId)).append('\n');
+        }
+
+        BulkIssueReport report = cardBulkService.issue(CardExportFormat.NDJSON, stream(ndjson.toString()));
+
+        assertEquals(57, report.getCreated());
+        assertEquals(3, report.getFailed());
+        assertEquals(40, report.getErrors().get(0).getLine());
+        assertEquals("Card number already exists", report.getErrors().get(0).getMessage());
+        assertEquals(57, cardRepository.count());
+    }
+
+    @Test
+    void testInsertsAreBatched() throws IOException {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        StringBuilder csv = new StringBuilder("cardNumber,owner,expirationDate,userId\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append(String.format("4300%012d", i)).append(",Bulk User,2030-01-01,").append(userId).append('\n');
+        }
+        statistics.clear();
+
+        BulkIssueReport report = issue(CardExportFormat.CSV, csv.toString());
+
+        assertEquals(100, report.getCreated());
+        assertEquals(100, statistics.getEntityInsertCount());
+        // 4 порции: проверка дубликатов и один пакет INSERT на порцию, плюс пользователи и пулы id
+        assertTrue(statistics.getPrepareStatementCount() < 20,
+                "Statements per 100 cards: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testCsvWithoutRequiredColumnIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> issue(CardExportFormat.CSV, "cardNumber,owner,userId\n4111111111111111,X," + userId + "\n"));
+        assertEquals("Missing CSV column: expirationDate", e.getMessage());
+    }
+
+    @Test
+    void testFormatFromContentType() {
+        assertEquals(CardExportFormat.CSV, CardExportFormat.fromContentType("text/csv; charset=UTF-8"));
+        assertEquals(CardExportFormat.NDJSON, CardExportFormat.fromContentType("application/x-ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> CardExportFormat.fromContentType("application/json"));
+        assertThrows(IllegalArgumentException.class, () -> CardExportFormat.fromContentType("not a type"));
+    }
+
+    private BulkIssueReport issue(CardExportFormat format, String body) throws IOException {
+        return cardBulkService.issue(format, stream(body));
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String row(String cardNumber, Long userId) {
+        return "{\"cardNumber\":\"" + cardNumber + "\",\"owner\":\"Bulk User\",\"expirationDate\":\"2030-01-01\","
+                + "\"balance\":10.5,\"userId\":" + userId + "}";
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"cards.expiry.enabled=true", "cards.expiry.chunk-size=3",
+        "cards.expiry.initial-delay=PT1H", "cards.expiry.interval=PT1H"})
+@ActiveProfiles("test")
+class CardExpirySweeperTest {
+
+    @Autowired
+    private CardExpirySweeper sweeper;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testSweepExpiresPastDueActiveCardsInChunks() {
+        LocalDate today = LocalDate.now();
+        List<Card> pastDue = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            pastDue.add(createCard(today.minusDays(i + 1), CardStatus.ACTIVE));
+        }
+        Card expiresToday = createCard(today, CardStatus.ACTIVE);
+        Card blocked = createCard(today.minusYears(1), CardStatus.BLOCKED);
+        DistributionSummary perRun = meterRegistry.get("bankcards.card.expiry.expired").summary();
+        long runs = perRun.count();
+        double expired = perRun.totalAmount();
+
+        // 7 карт при порции 3: три транзакции, последняя неполная
+        assertEquals(7, sweeper.sweep(today));
+
+        for (Card card : pastDue) {
+            Card reloaded = cardRepository.findById(card.getId()).orElseThrow();
+            assertEquals(CardStatus.EXPIRED, reloaded.getStatus());
+            assertEquals(card.getVersion() + 1, reloaded.getVersion());
+        }
+        assertEquals(CardStatus.ACTIVE, cardRepository.findById(expiresToday.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.BLOCKED, cardRepository.findById(blocked.getId()).orElseThrow().getStatus());
+        assertEquals(runs + 1, perRun.count());
+        assertEquals(expired + 7, perRun.totalAmount());
+
+        assertEquals(0, sweeper.sweep(today));
+        assertEquals(runs + 2, perRun.count());
+    }
+
+    @Test
+    void testExactMultipleOfChunkSize() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 6; i++) {
+            createCard(today.minusDays(1), CardStatus.ACTIVE);
+        }
+
+        assertEquals(6, sweeper.sweep(today));
+        assertEquals(0, sweeper.sweep(today));
+    }
+
+    @Test
+    void testExpiredCardRejectsTransfers() {
+        LocalDate today = LocalDate.now();
+        Card expired = createCard(today.minusDays(1), CardStatus.ACTIVE);
+        Card active = createCard(today.plusYears(1), CardStatus.ACTIVE);
+
+        sweeper.sweep(today);
+
+        RuntimeException outgoing = assertThrows(RuntimeException.class,
+                () -> cardService.transferBetweenCards(expired.getId(), active.getId(), 10.0));
+        assertEquals("Source card is not active", outgoing.getMessage());
+        RuntimeException incoming = assertThrows(RuntimeException.class,
+                () -> cardService.transferBetweenCards(active.getId(), expired.getId(), 10.0));
+        assertEquals("Destination card is not active", incoming.getMessage());
+    }
+
+    private Card createCard(LocalDate expirationDate, CardStatus status) {
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        Card card = new Card("expiry-test-" + System.nanoTime(), "Test User", expirationDate, status, 100.0, user);
+        return cardRepository.save(card);
+    }
+}
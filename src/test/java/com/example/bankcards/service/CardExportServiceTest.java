@@ -0,0 +1,129 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardExportServiceTest {
+
+    @Autowired
+    private CardExportService cardExportService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.findByUsername("user1").orElseThrow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testNdjsonExportWritesOneObjectPerLine() throws Exception {
+        Card card = createCard("Ivan Ivanov", "1234", 10_000_000.0);
+
+        String[] lines = export(CardExportFormat.NDJSON).split("\n");
+
+        assertEquals(1, lines.length);
+        assertEquals("{\"id\":" + card.getId() + ",\"owner\":\"Ivan Ivanov\",\"maskedCardNumber\":\"**** **** **** 1234\","
+                + "\"expirationDate\":\"" + card.getExpirationDate() + "\",\"status\":\"ACTIVE\",\"balance\":10000000,"
+                + "\"userId\":" + user.getId() + "}", lines[0]);
+    }
+
+    @Test
+    void testCsvExportQuotesFieldsAndKeepsPlainBalance() throws Exception {
+        Card card = createCard("Ivanov, \"Ivan\"", "5678", 10_000_000.0);
+
+        String[] lines = export(CardExportFormat.CSV).split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals("id,owner,maskedCardNumber,expirationDate,status,balance,userId", lines[0]);
+        assertEquals(card.getId() + ",\"Ivanov, \"\"Ivan\"\"\",**** **** **** 5678," + card.getExpirationDate()
+                + ",ACTIVE,10000000,"  + user.getId(), lines[1]);
+    }
+
+    @Test
+    void testCsvExportNeutralizesFormulas() throws Exception {
+        createCard("=HYPERLINK(\"http://evil\",\"x\")", "0001", 1.0);
+        createCard("-2+3", "0002", 1.0);
+        createCard("@SUM(A1)", "0003", 1.0);
+        createCard("Anna-Maria", "0004", 1.0);
+
+        String[] lines = export(CardExportFormat.CSV).split("\n");
+
+        assertEquals(5, lines.length);
+        assertTrue(lines[1].contains(",\"'=HYPERLINK(\"\"http://evil\"\",\"\"x\"\")\","), lines[1]);
+        assertTrue(lines[2].contains(",'-2+3,"), lines[2]);
+        assertTrue(lines[3].contains(",'@SUM(A1),"), lines[3]);
+        assertTrue(lines[4].contains(",Anna-Maria,"), lines[4]);
+    }
+
+    @Test
+    void testExportReadsAllRowsWithOneQuery() throws Exception {
+        int cards = CardRepository.STREAM_FETCH_SIZE * 2 + 7;
+        List<Card> batch = new ArrayList<>();
+        for (int i = 0; i < cards; i++) {
+            Card card = new Card("export-" + i, "Owner " + i, LocalDate.now().plusYears(1), CardStatus.ACTIVE, 1.0, user);
+            card.setLast4(String.format("%04d", i % 10_000));
+            batch.add(card);
+        }
+        cardRepository.saveAll(batch);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = cardExportService.export(CardExportFormat.NDJSON, out);
+
+        assertEquals(cards, exported);
+        assertEquals(cards, out.toString(StandardCharsets.UTF_8).split("\n").length);
+        // Пользователь не подгружается: один SELECT на всю выгрузку
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private String export(CardExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cardExportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Card createCard(String owner, String last4, double balance) {
+        Card card = new Card("export-" + System.nanoTime(), owner, LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, balance, user);
+        card.setLast4(last4);
+        return cardRepository.save(card);
+    }
+}
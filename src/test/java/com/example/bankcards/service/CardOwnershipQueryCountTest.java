@@ -0,0 +1,100 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardOwnershipQueryCountTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Card fromCard;
+    private Card toCard;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Пользователь уже в UserCache, как после логина: в счёт попадают только запросы к картам
+        userCache.findByUsername("user1");
+        fromCard = createCard("user1", 100.0);
+        toCard = createCard("user1", 0.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testOwnershipCheckIsSingleQuery() {
+        statistics.clear();
+
+        assertTrue(cardService.areCardsOwnedByUser(fromCard.getId(), toCard.getId(), "user1"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testOwnershipCheckRejectsForeignCard() {
+        Card foreignCard = createCard("admin", 0.0);
+
+        assertFalse(cardService.areCardsOwnedByUser(fromCard.getId(), foreignCard.getId(), "user1"));
+        assertFalse(cardService.isCardOwner(foreignCard.getId(), "user1"));
+        assertFalse(cardService.isCardOwner(-1L, "user1"));
+        assertTrue(cardService.isCardOwner(fromCard.getId(), "user1"));
+    }
+
+    @Test
+    void testQueryCountPerTransfer() {
+        statistics.clear();
+
+        // Так же, как при POST /api/cards/transfer: проверка в @PreAuthorize, затем перевод
+        assertTrue(cardService.areCardsOwnedByUser(fromCard.getId(), toCard.getId(), "user1"));
+        cardService.transferBetweenCards(fromCard.getId(), toCard.getId(), 10.0);
+
+        // 1 проверка владения + 2 SELECT ... FOR UPDATE + UPDATE двух карт
+        assertTrue(statistics.getPrepareStatementCount() <= 5,
+                "Statements per transfer: " + statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getEntityLoadCount());
+    }
+
+    private Card createCard(String username, double balance) {
+        User user = userRepository.findByUsername(username).orElseThrow();
+        Card card = new Card("owner-test-" + System.nanoTime(), "Test User", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, balance, user);
+        return cardRepository.save(card);
+    }
+}
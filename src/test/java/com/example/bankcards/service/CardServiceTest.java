@@ -1,17 +1,38 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardBalanceStripeRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CachedUser;
+import com.example.bankcards.security.UserCache;
 import com.example.bankcards.util.CardUtils;
+import com.example.bankcards.util.PageCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -21,35 +42,147 @@ import static org.mockito.Mockito.*;
 
 class CardServiceTest {
 
+    private static final Long USER1_ID = 7L;
+
     @Mock
     private CardRepository cardRepository;
 
-    @InjectMocks
+    @Mock
+    private CardTransactionRepository transactionRepository;
+
+    @Mock
+    private CardBalanceStripeRepository stripeRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private EncryptionService encryptionService =
+            new EncryptionService(new SimpleMeterRegistry(), EncryptionServiceTest.BLIND_INDEX_KEY);
+
     private CardService cardService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        BalanceStripes balanceStripes = new BalanceStripes(cardRepository, stripeRepository, false);
+        TransferEngine transferEngine = new TransferEngine(cardRepository, transactionRepository, balanceStripes,
+                TransferMode.PESSIMISTIC_LOCK);
+        UserCache userCache = new UserCache(userRepository, 100, Duration.ofMinutes(5));
+        meterRegistry = new SimpleMeterRegistry();
+        cardService = new CardService(cardRepository, transactionRepository, userCache, encryptionService,
+                transferEngine, balanceStripes, new CardOperationMetrics(meterRegistry));
+
+        User user1 = new User("user1", "password", Role.USER);
+        user1.setId(USER1_ID);
+        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
     }
 
     @Test
     void testFilterCards() {
-        Pageable pageable = PageRequest.of(0, 10);
-        Card card1 = new Card();
-        card1.setOwner("John Doe");
-        card1.setStatus(CardStatus.ACTIVE);
-
-        Card card2 = new Card();
-        card2.setOwner("Jane Doe");
-        card2.setStatus(CardStatus.BLOCKED);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("id"));
+        CardView card1 = view(1L, "John Doe", CardStatus.ACTIVE);
 
-        when(cardRepository.findByOwnerAndStatus("John Doe", CardStatus.ACTIVE, pageable))
+        when(cardRepository.findViewsByOwnerAndStatus("John Doe", CardStatus.ACTIVE, pageable))
                 .thenReturn(Arrays.asList(card1));
 
-        List<Card> result = cardService.filterCards("John Doe", CardStatus.ACTIVE, 0, 10);
+        List<CardView> result = cardService.filterCards("John Doe", CardStatus.ACTIVE, 0, 10, "admin");
 
         assertEquals(1, result.size());
         assertEquals("John Doe", result.get(0).getOwner());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testFilterCardsForUserFiltersByUsername() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "user1", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        Pageable pageable = PageRequest.of(0, 10, Sort.by("id"));
+        when(cardRepository.findViewsByUserIdAndStatus(USER1_ID, CardStatus.ACTIVE, pageable))
+                .thenReturn(List.of(view(1L, "User One", CardStatus.ACTIVE)));
+
+        List<CardView> result = cardService.filterCards("Someone Else", CardStatus.ACTIVE, 0, 10, "user1");
+
+        assertEquals(1, result.size());
+        verify(cardRepository, never()).findViewsByOwnerAndStatus(any(), any(), any());
+    }
+
+    @Test
+    void testGetUserCardsAfterReturnsNextCursor() {
+        when(cardRepository.findViewsByUserIdAfter(USER1_ID, 10L, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(view(11L), view(12L), view(13L)));
+
+        CursorPage<CardView> page = cardService.getUserCardsAfter("user1", PageCursor.encode(10L), 2);
+
+        assertEquals(2, page.getItems().size());
+        assertEquals(12L, PageCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void testGetUserCardsAfterLastPageHasNoCursor() {
+        when(cardRepository.findViewsByUserIdAfter(USER1_ID, 0L, PageRequest.of(0, 11)))
+                .thenReturn(List.of(view(1L)));
+
+        CursorPage<CardView> page = cardService.getUserCardsAfter("user1", "", 10);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> cardService.getUserCardsAfter("user1", "garbage", 10));
+    }
+
+    @Test
+    void testCursorPageSizeIsBounded() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> cardService.getUserCardsAfter("user1", "", 0));
+        assertEquals("Page size must be between 1 and 1000", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> cardService.getUserCardsAfter("user1", "", 1001));
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.filterCardsAfter(null, CardStatus.ACTIVE, "", 0, "user1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.filterCardsAfter(null, CardStatus.ACTIVE, "", 10_000_000, "user1"));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void testUserIdIsResolvedThroughCache() {
+        cardService.getUserCards("user1", 0, 10);
+        cardService.getUserCards("user1", 1, 10);
+        cardService.isCardOwner(1L, "user1");
+
+        verify(userRepository, times(1)).findByUsername("user1");
+        verify(cardRepository).findViewsByUserId(USER1_ID, PageRequest.of(1, 10, Sort.by("id")));
+    }
+
+    @Test
+    void testUserIdIsTakenFromPrincipal() {
+        CachedUser principal = new CachedUser(USER1_ID, "user1", Role.USER);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                principal, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        when(cardRepository.countOwnedBy(List.of(1L), USER1_ID)).thenReturn(1L);
+
+        assertTrue(cardService.isCardOwner(1L, "user1"));
+        cardService.getUserCards("user1", 0, 10);
+
+        verify(userRepository, never()).findByUsername(any());
+        verify(cardRepository).findViewsByUserId(USER1_ID, PageRequest.of(0, 10, Sort.by("id")));
+    }
+
+    @Test
+    void testOwnershipOfUnknownUserIsDeniedWithoutCardQuery() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertFalse(cardService.isCardOwner(1L, "ghost"));
+        assertFalse(cardService.areCardsOwnedByUser(1L, 2L, "ghost"));
+        verify(cardRepository, never()).countOwnedBy(anyCollection(), any());
+        assertThrows(RuntimeException.class, () -> cardService.getUserCards("ghost", 0, 10));
     }
 
     @Test
@@ -57,13 +190,15 @@ class CardServiceTest {
         Card fromCard = new Card();
         fromCard.setId(1L);
         fromCard.setBalance(100.0);
+        fromCard.setStatus(CardStatus.ACTIVE);
 
         Card toCard = new Card();
         toCard.setId(2L);
         toCard.setBalance(50.0);
+        toCard.setStatus(CardStatus.ACTIVE);
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         cardService.transferBetweenCards(1L, 2L, 30.0);
 
@@ -74,6 +209,99 @@ class CardServiceTest {
         verify(cardRepository, times(1)).save(toCard);
     }
 
+    @Test
+    void testTransferLocksCardsInIdOrder() {
+        Card fromCard = new Card();
+        fromCard.setId(2L);
+        fromCard.setBalance(100.0);
+        fromCard.setStatus(CardStatus.ACTIVE);
+
+        Card toCard = new Card();
+        toCard.setId(1L);
+        toCard.setBalance(0.0);
+        toCard.setStatus(CardStatus.ACTIVE);
+
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(toCard));
+
+        cardService.transferBetweenCards(2L, 1L, 40.0);
+
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findByIdForUpdate(1L);
+        inOrder.verify(cardRepository).findByIdForUpdate(2L);
+        assertEquals(60.0, fromCard.getBalance());
+        assertEquals(40.0, toCard.getBalance());
+    }
+
+    @Test
+    void testTransferRejectsInsufficientBalance() {
+        Card fromCard = new Card();
+        fromCard.setId(1L);
+        fromCard.setBalance(10.0);
+        fromCard.setStatus(CardStatus.ACTIVE);
+
+        Card toCard = new Card();
+        toCard.setId(2L);
+        toCard.setBalance(0.0);
+        toCard.setStatus(CardStatus.ACTIVE);
+
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
+
+        Exception exception = assertThrows(RuntimeException.class, () -> cardService.transferBetweenCards(1L, 2L, 30.0));
+        assertEquals("Insufficient balance", exception.getMessage());
+        verify(cardRepository, never()).save(any());
+        assertEquals(1, meterRegistry.get("bankcards.card.operations")
+                .tags("operation", "transfer", "outcome", "insufficient_balance").timer().count());
+    }
+
+    @Test
+    void testTransferBatchReportsEachItem() {
+        Card fromCard = new Card();
+        fromCard.setId(1L);
+        fromCard.setBalance(50.0);
+        fromCard.setStatus(CardStatus.ACTIVE);
+
+        Card toCard = new Card();
+        toCard.setId(2L);
+        toCard.setBalance(0.0);
+        toCard.setStatus(CardStatus.ACTIVE);
+
+        when(cardRepository.findIdsOwnedBy(anyCollection(), eq(USER1_ID))).thenReturn(List.of(1L, 2L));
+        when(cardRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        List<TransferResult> results = cardService.transferBatch(List.of(
+                new TransferRequest(1L, 2L, 30.0),
+                new TransferRequest(1L, 2L, 30.0),
+                new TransferRequest(1L, 3L, 10.0),
+                new TransferRequest(1L, 2L, 20.0)), "user1");
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Insufficient balance", results.get(1).getMessage());
+        assertEquals("Access denied", results.get(2).getMessage());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(0.0, fromCard.getBalance());
+        assertEquals(50.0, toCard.getBalance());
+        verify(cardRepository, times(1)).findIdsOwnedBy(anyCollection(), eq(USER1_ID));
+    }
+
+    @Test
+    void testOperationOutcomesAreTagged() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+        when(cardRepository.findViewById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> cardService.requestCardBlock(1L));
+        assertTrue(cardService.getCardById(2L).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> cardService.transferBatch(List.of(), "user1"));
+
+        assertEquals(1, meterRegistry.get("bankcards.card.operations")
+                .tags("operation", "block", "outcome", "not_found").timer().count());
+        assertEquals(1, meterRegistry.get("bankcards.card.operations")
+                .tags("operation", "get", "outcome", "not_found").timer().count());
+        assertEquals(1, meterRegistry.get("bankcards.card.operations")
+                .tags("operation", "transfer_batch", "outcome", "invalid_request").timer().count());
+    }
+
     @Test
     void testRequestCardBlock() {
         Card card = new Card();
@@ -99,4 +327,46 @@ class CardServiceTest {
         });
         assertEquals("Некорректный номер карты", exception.getMessage());
     }
+
+    @Test
+    void testCreateCardStoresBlindIndex() {
+        Card card = new Card();
+        card.setCardNumber("4111 1111 1111 1111");
+        when(cardRepository.save(card)).thenReturn(card);
+
+        cardService.createCard(card);
+
+        assertEquals(encryptionService.blindIndex("4111111111111111"), card.getCardNumberHash());
+        assertNotEquals("4111 1111 1111 1111", card.getCardNumber());
+    }
+
+    @Test
+    void testCreateCardStoresLast4ForMasking() {
+        Card card = new Card();
+        card.setCardNumber("4111 1111 1111 1234");
+        when(cardRepository.save(card)).thenReturn(card);
+
+        cardService.createCard(card);
+
+        assertEquals("1234", card.getLast4());
+        assertEquals("**** **** **** 1234", card.getMaskedCardNumber());
+    }
+
+    @Test
+    void testFindByCardNumberUsesBlindIndex() {
+        Card card = new Card();
+        String hash = encryptionService.blindIndex("4111111111111111");
+        when(cardRepository.findByCardNumberHash(hash)).thenReturn(Optional.of(card));
+
+        assertSame(card, cardService.findByCardNumber("4111-1111-1111-1111").orElseThrow());
+        verify(cardRepository, never()).findAll();
+    }
+
+    private static CardView view(Long id) {
+        return view(id, "Test User", CardStatus.ACTIVE);
+    }
+
+    private static CardView view(Long id, String owner, CardStatus status) {
+        return new CardView(id, owner, "1234", LocalDate.now().plusYears(1), status, 0.0, 1L, 0L);
+    }
 }
@@ -0,0 +1,178 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardTransactionView;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.entity.TransactionType;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardTransactionLedgerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardTransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Card fromCard;
+    private Card toCard;
+
+    @BeforeEach
+    void setUp() {
+        fromCard = createCard(100.0);
+        toCard = createCard(0.0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAll();
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testTransferWritesDebitAndCredit() {
+        cardService.transferBetweenCards(fromCard.getId(), toCard.getId(), 30.0);
+
+        CardTransactionView debit = firstPage(fromCard.getId()).getItems().get(0);
+        assertEquals(TransactionType.DEBIT, debit.getType());
+        assertEquals(30.0, debit.getAmount(), 0.001);
+        assertEquals(toCard.getId(), debit.getCounterpartyCardId());
+
+        CardTransactionView credit = firstPage(toCard.getId()).getItems().get(0);
+        assertEquals(TransactionType.CREDIT, credit.getType());
+        assertEquals(fromCard.getId(), credit.getCounterpartyCardId());
+        assertEquals(debit.getCreatedAt(), credit.getCreatedAt());
+    }
+
+    @Test
+    void testFailedTransferLeavesNoEntries() {
+        assertThrows(RuntimeException.class,
+                () -> cardService.transferBetweenCards(fromCard.getId(), toCard.getId(), 500.0));
+        assertThrows(RuntimeException.class,
+                () -> transferEngine.transferWithConditionalUpdate(fromCard.getId(), toCard.getId(), 500.0));
+
+        assertEquals(0, transactionRepository.count());
+    }
+
+    @Test
+    void testBatchWritesEntriesOnlyForSuccessfulTransfers() {
+        transferEngine.transferBatch(List.of(
+                new TransferRequest(fromCard.getId(), toCard.getId(), 60.0),
+                new TransferRequest(fromCard.getId(), toCard.getId(), 60.0)), Set.of(fromCard.getId(), toCard.getId()));
+
+        assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    void testKeysetPagesCoverStatementNewestFirst() {
+        List<CardTransaction> entries = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            // Пары строк с одинаковым временем проверяют разрешение равенства по id
+            entries.add(CardTransaction.debit(fromCard.getId(), toCard.getId(), 1.0, T0.plusMinutes(i / 2)));
+        }
+        transactionRepository.saveAll(entries);
+
+        List<CardTransactionView> all = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPage<CardTransactionView> page =
+                    cardService.getTransactions(fromCard.getId(), null, null, after, 10);
+            all.addAll(page.getItems());
+            after = page.getNextCursor();
+        } while (after != null);
+
+        assertEquals(25, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            CardTransactionView newer = all.get(i - 1);
+            CardTransactionView older = all.get(i);
+            assertTrue(newer.getCreatedAt().isAfter(older.getCreatedAt())
+                    || newer.getCreatedAt().equals(older.getCreatedAt()) && newer.getId() > older.getId());
+        }
+    }
+
+    @Test
+    void testTimeRangeIsHalfOpen() {
+        List<CardTransaction> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(CardTransaction.debit(fromCard.getId(), toCard.getId(), 1.0, T0.plusHours(i)));
+        }
+        transactionRepository.saveAll(entries);
+
+        CursorPage<CardTransactionView> page =
+                cardService.getTransactions(fromCard.getId(), T0.plusHours(2), T0.plusHours(5), null, 2);
+        assertEquals(List.of(T0.plusHours(4), T0.plusHours(3)),
+                page.getItems().stream().map(CardTransactionView::getCreatedAt).toList());
+
+        page = cardService.getTransactions(fromCard.getId(), T0.plusHours(2), T0.plusHours(5), page.getNextCursor(), 2);
+        assertEquals(List.of(T0.plusHours(2)), page.getItems().stream().map(CardTransactionView::getCreatedAt).toList());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testStatementPageIsSingleQuery() {
+        cardService.transferBetweenCards(fromCard.getId(), toCard.getId(), 10.0);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        firstPage(fromCard.getId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testRejectsInvalidPageSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.getTransactions(fromCard.getId(), null, null, null, 0));
+    }
+
+    private CursorPage<CardTransactionView> firstPage(Long cardId) {
+        return cardService.getTransactions(cardId, null, null, null, 20);
+    }
+
+    private Card createCard(double balance) {
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        Card card = new Card("ledger-" + System.nanoTime(), "Test User", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, balance, user);
+        return cardRepository.save(card);
+    }
+}
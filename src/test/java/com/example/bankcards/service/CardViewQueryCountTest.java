@@ -0,0 +1,129 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardView;
+import com.example.bankcards.dto.CursorPage;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Списки карт строятся одним SELECT на страницу: без загрузки Card/User и без N+1 по пользователю.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CardViewQueryCountTest {
+
+    private static final int CARDS = 5;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Пользователь уже в UserCache, как после логина: в счёт попадают только запросы к картам
+        userCache.findByUsername("user1");
+        user = userRepository.findByUsername("user1").orElseThrow();
+        for (int i = 0; i < CARDS; i++) {
+            Card card = new Card("view-" + System.nanoTime(), "View User", LocalDate.now().plusYears(1),
+                    CardStatus.ACTIVE, 10.0, user);
+            card.setLast4(String.format("%04d", i));
+            cardRepository.save(card);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testUserCardsPageIsOneStatement() {
+        statistics.clear();
+
+        List<CardView> cards = cardService.getUserCards("user1", 0, 10);
+
+        assertEquals(CARDS, cards.size());
+        assertEquals("**** **** **** 0000", cards.get(0).getMaskedCardNumber());
+        assertEquals(user.getId(), cards.get(0).getUserId());
+        assertSingleStatementWithoutEntities();
+    }
+
+    @Test
+    void testKeysetPageIsOneStatement() {
+        statistics.clear();
+
+        CursorPage<CardView> page = cardService.getUserCardsAfter("user1", "", 2);
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+        assertSingleStatementWithoutEntities();
+    }
+
+    @Test
+    void testFilterPageIsOneStatement() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "user1", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        statistics.clear();
+
+        assertEquals(CARDS, cardService.filterCards(null, CardStatus.ACTIVE, 0, 10, "user1").size());
+        assertSingleStatementWithoutEntities();
+
+        statistics.clear();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+
+        assertEquals(CARDS, cardService.filterCardsAfter("View User", CardStatus.ACTIVE, "", 10, "admin")
+                .getItems().size());
+        assertSingleStatementWithoutEntities();
+    }
+
+    @Test
+    void testAllCardsIsOneStatement() {
+        statistics.clear();
+
+        assertEquals(CARDS, cardService.getAllCards().size());
+        assertSingleStatementWithoutEntities();
+    }
+
+    private void assertSingleStatementWithoutEntities() {
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
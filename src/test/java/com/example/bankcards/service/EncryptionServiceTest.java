@@ -0,0 +1,117 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionServiceTest {
+
+    static final String BLIND_INDEX_KEY = "test-blind-index-key-0123456789abcdef";
+
+    private final EncryptionService encryptionService = new EncryptionService(new SimpleMeterRegistry(), BLIND_INDEX_KEY);
+
+    @Test
+    void testEncryptDecryptRoundTrip() {
+        String cardNumber = "1234567812345678";
+
+        String encrypted = encryptionService.encrypt(cardNumber);
+
+        assertTrue(encrypted.startsWith("v1:"));
+        assertNotEquals(encrypted, encryptionService.encrypt(cardNumber), "IV должен быть уникальным для каждого значения");
+        assertEquals(cardNumber, encryptionService.decrypt(encrypted));
+    }
+
+    @Test
+    void testDecryptLegacyValue() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec("MySecretKey12345".getBytes(StandardCharsets.UTF_8), "AES"));
+        String legacy = Base64.getEncoder().encodeToString(cipher.doFinal("4111111111111111".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("4111111111111111", encryptionService.decrypt(legacy));
+    }
+
+    @Test
+    void testTamperedValueIsRejected() {
+        String encrypted = encryptionService.encrypt("1234567812345678");
+        byte[] payload = Base64.getDecoder().decode(encrypted.substring(3));
+        payload[payload.length - 1] ^= 1;
+        String tampered = "v1:" + Base64.getEncoder().encodeToString(payload);
+
+        assertThrows(RuntimeException.class, () -> encryptionService.decrypt(tampered));
+    }
+
+    @Test
+    void testBatchEncryptDecryptPreservesOrder() {
+        List<String> numbers = List.of("1111222233334444", "5555666677778888", "9999000011112222");
+
+        List<String> encrypted = encryptionService.encryptAll(numbers, true);
+        List<String> decrypted = encryptionService.decryptAll(encrypted, true);
+
+        assertEquals(numbers, decrypted);
+    }
+
+    @Test
+    void testBlindIndexIsDeterministic() {
+        String index = encryptionService.blindIndex("4111111111111111");
+
+        assertEquals(64, index.length());
+        assertEquals(index, encryptionService.blindIndex("4111 1111 1111 1111"));
+        assertNotEquals(index, encryptionService.blindIndex("4111111111111112"));
+    }
+
+    @Test
+    void testBlindIndexDependsOnConfiguredKey() {
+        EncryptionService otherKey = new EncryptionService(new SimpleMeterRegistry(), "another-blind-index-key-0123456789");
+
+        assertNotEquals(encryptionService.blindIndex("4111111111111111"), otherKey.blindIndex("4111111111111111"));
+        assertThrows(IllegalStateException.class, () -> new EncryptionService(new SimpleMeterRegistry(), null));
+        assertThrows(IllegalStateException.class, () -> new EncryptionService(new SimpleMeterRegistry(), "too-short-key"));
+    }
+
+    @Test
+    void testPooledInstancesAreSharedAcrossShortLivedThreads() throws Exception {
+        EncryptionService pooled = new EncryptionService(new SimpleMeterRegistry(), BLIND_INDEX_KEY, true);
+        String encrypted = pooled.encrypt("4111111111111111");
+        byte[] payload = Base64.getDecoder().decode(encrypted.substring(3));
+        payload[payload.length - 1] ^= 1;
+        String tampered = "v1:" + Base64.getEncoder().encodeToString(payload);
+
+        // Поток на задачу — как при виртуальных потоках; экземпляр возвращается и после ошибки
+        for (int i = 0; i < 50; i++) {
+            Thread thread = new Thread(() -> {
+                assertThrows(RuntimeException.class, () -> pooled.decrypt(tampered));
+                assertEquals("4111111111111111", pooled.decrypt(pooled.encrypt("4111111111111111")));
+            });
+            thread.start();
+            thread.join();
+        }
+
+        AtomicInteger created = new AtomicInteger();
+        EncryptionService.Instances<Object> instances = new EncryptionService.Instances<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, true);
+        Object first = instances.acquire();
+        instances.release(first);
+        assertSame(first, instances.acquire());
+        assertEquals(1, created.get());
+
+        // Созданные в пик экземпляры сверх числа ядер не удерживаются
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Object> burst = new ArrayList<>();
+        for (int i = 0; i < cores + 5; i++) {
+            burst.add(instances.acquire());
+        }
+        burst.forEach(instances::release);
+        assertEquals(cores, instances.idleCount());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResult;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransferEngineConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+    private static final double INITIAL_BALANCE = 1000.0;
+    private static final double AMOUNT = 10.0;
+
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll();
+    }
+
+    @Test
+    void testLockingModeNeverOverspends() throws Exception {
+        hammer(transferEngine::transferWithLocks);
+    }
+
+    @Test
+    void testConditionalUpdateModeNeverOverspends() throws Exception {
+        hammer(transferEngine::transferWithConditionalUpdate);
+    }
+
+    @Test
+    void testOppositeTransfersDoNotDeadlock() throws Exception {
+        Card a = createCard(INITIAL_BALANCE);
+        Card b = createCard(INITIAL_BALANCE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                boolean forward = i % 2 == 0;
+                futures.add(executor.submit(() -> forward
+                        ? transfer(a.getId(), b.getId())
+                        : transfer(b.getId(), a.getId())));
+            }
+            // Зависший перевод не должен подвесить сборку: таймаут — провал теста
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double total = balanceOf(a.getId()) + balanceOf(b.getId());
+        assertEquals(2 * INITIAL_BALANCE, total, 0.001);
+    }
+
+    @Test
+    void testBatchTransfersLockAllCardsOnce() {
+        Card a = createCard(100.0);
+        Card b = createCard(0.0);
+
+        List<TransferResult> results = transferEngine.transferBatch(List.of(
+                new TransferRequest(a.getId(), b.getId(), 60.0),
+                new TransferRequest(a.getId(), b.getId(), 60.0),
+                new TransferRequest(b.getId(), a.getId(), 10.0)), Set.of(a.getId(), b.getId()));
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(50.0, balanceOf(a.getId()), 0.001);
+        assertEquals(50.0, balanceOf(b.getId()), 0.001);
+    }
+
+    private void hammer(TransferCall call) throws Exception {
+        Card source = createCard(INITIAL_BALANCE);
+        Card destination = createCard(0.0);
+        AtomicInteger succeeded = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                tasks.add(() -> {
+                    try {
+                        call.transfer(source.getId(), destination.getId(), AMOUNT);
+                        succeeded.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        assertEquals("Insufficient balance", e.getMessage());
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks, 60, TimeUnit.SECONDS)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int expectedTransfers = (int) (INITIAL_BALANCE / AMOUNT);
+        assertEquals(expectedTransfers, succeeded.get());
+        assertEquals(0.0, balanceOf(source.getId()), 0.001);
+        assertEquals(INITIAL_BALANCE, balanceOf(destination.getId()), 0.001);
+    }
+
+    // Ожидаемый отказ — только нехватка средств; откат жертвы взаимной блокировки
+    // (CannotAcquireLockException) или таймаут блокировки пробрасываются и валят тест
+    private boolean transfer(Long fromCardId, Long toCardId) {
+        try {
+            transferEngine.transfer(fromCardId, toCardId, AMOUNT);
+            return true;
+        } catch (RuntimeException e) {
+            if ("Insufficient balance".equals(e.getMessage())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private double balanceOf(Long cardId) {
+        return cardRepository.findById(cardId).orElseThrow().getBalance();
+    }
+
+    private Card createCard(double balance) {
+        User user = userRepository.findByUsername("user1").orElseThrow();
+        Card card = new Card("test-" + System.nanoTime(), "Test User", LocalDate.now().plusYears(1),
+                CardStatus.ACTIVE, balance, user);
+        return cardRepository.save(card);
+    }
+
+    @FunctionalInterface
+    private interface TransferCall {
+        void transfer(Long fromCardId, Long toCardId, Double amount);
+    }
+}